@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.util.concurrent.Callable;
+
+/**
+ * 用来解析返回值类型为{@link Callable}的类型解析器，脱敏会在{@link Callable#call()}返回时进行，
+ * 对于spring-mvc处理器方法即在异步线程中进行
+ *
+ * @author zyc
+ */
+public class CallableTypeParser implements TypeParser<Callable<Object>, AnnotatedParameterizedType> {
+
+    @Override
+    public Callable<Object> parse(Callable<Object> callable, AnnotatedParameterizedType annotatedParameterizedType) {
+        AnnotatedType typeArgument = annotatedParameterizedType.getAnnotatedActualTypeArguments()[0];
+        DesensitizationContext.Settings settings = DesensitizationContext.capture();
+        return () -> settings.parse(callable.call(), typeArgument);
+    }
+
+    @Override
+    public boolean support(Object value, AnnotatedType annotatedType) {
+        return value instanceof Callable && annotatedType instanceof AnnotatedParameterizedType;
+    }
+
+    @Override
+    public int order() {
+        return TypeParserOrders.CONTAINER;
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationLimits.Limit;
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationLimits.Policy;
+import red.zyc.parser.AnnotationParser;
+import red.zyc.parser.type.Cascade;
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.reflect.AnnotatedArrayType;
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 用来追踪级联脱敏过程的类型解析器，只在当前线程存在{@link DesensitizationContext}时生效。
+ * 该解析器会统计脱敏过程中处理过的元素个数，并在遇到标注了{@link Cascade}注解的对象时
+ * 记录级联的深度，真正的级联脱敏仍然交由内置的类型解析器完成。
+ * <p>
+ * 对于只标注了{@link Cascade}注解的对象，同一个上下文中以引用区分的同一个对象只会被级联脱敏一次，
+ * 之后再次遇到该对象时直接复用第一次的脱敏结果。如果在级联脱敏一个对象的过程中再次遇到了该对象，
+ * 即对象图中存在环，那么该引用会被脱敏为{@code null}，以免无限递归或者暴露未脱敏的数据。此时该对象的副本还没有构造完成，
+ * 无法被环中的引用复用；原地脱敏时不会构造副本，环引用保持不变。
+ * <p>
+ * 该解析器同时负责检查{@link DesensitizationLimits}中的限制，在{@link Policy#TRUNCATE 截断}策略下，
+ * 元素个数会超出限制的集合、数组以及{@link Map}只保留限制以内的元素，其它超出限制的对象会被脱敏为{@code null}。
+ * <p>
+ * 对于存在{@link GeneratedCascadeTypeParser 编译期生成的类型解析器}的类，级联脱敏直接交由生成的代码完成。
+ * 元素类型只标注了{@link Cascade}注解并且支持批量脱敏的集合以及数组会被一次性交给生成的代码按列脱敏，
+ * 元素只会被解析一次类型解析器，结果与逐个脱敏元素一致。配置了{@link DesensitizationLimits}时不会批量脱敏。
+ * <p>
+ * 原地脱敏返回值时，{@link Cascade}对象以及可变的容器会被直接修改而不是复制，具体参考{@link DesensitizeInPlace}。
+ * <p>
+ * 配置了{@link DesensitizationResultCache}时，可以被缓存的字符串会优先从缓存中获取脱敏结果，没有命中时才交由内置的类型解析器脱敏。
+ *
+ * @author zyc
+ */
+public class CascadeTypeParser implements TypeParser<Object, AnnotatedType> {
+
+    /**
+     * 编译期生成的类型解析器，以目标类作为键
+     */
+    private final Map<Class<?>, GeneratedCascadeTypeParser<?>> generatedCascadeTypeParsers;
+
+    /**
+     * 脱敏结果缓存，没有开启缓存时为{@code null}
+     */
+    private final DesensitizationResultCache resultCache;
+
+    public CascadeTypeParser() {
+        this(List.of());
+    }
+
+    public CascadeTypeParser(List<GeneratedCascadeTypeParser<?>> generatedCascadeTypeParsers) {
+        this(generatedCascadeTypeParsers, null);
+    }
+
+    public CascadeTypeParser(List<GeneratedCascadeTypeParser<?>> generatedCascadeTypeParsers, DesensitizationResultCache resultCache) {
+        this.generatedCascadeTypeParsers = generatedCascadeTypeParsers.stream()
+                .collect(Collectors.toUnmodifiableMap(GeneratedCascadeTypeParser::type, Function.identity(), (first, second) -> first));
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * 统计元素个数并检查限制，然后按照{@link #claim(DesensitizationContext, Object, AnnotatedType)}的结果处理对象，
+     * 不需要该解析器处理的对象交给{@link TypeParserRegistry#parseNext(TypeParser, Object, AnnotatedType) 之后的类型解析器}
+     */
+    @Override
+    public Object parse(Object value, AnnotatedType annotatedType) {
+        DesensitizationContext context = DesensitizationContext.current();
+        if (context.countElement()) {
+            context.resolved(CascadeTypeParser.class);
+            return null;
+        }
+        Claim claim = claim(context, value, annotatedType);
+        if (claim == null) {
+            return TypeParserRegistry.INSTANCE.parseNext(this, value, annotatedType);
+        }
+        context.resolved(CascadeTypeParser.class);
+        return switch (claim) {
+            case TRUNCATE -> truncate(context, value, annotatedType);
+            case CASCADE -> context.exceedsCascadeDepth() ? null : cascade(context, value, annotatedType);
+            case BATCH -> batch(context, value, annotatedType);
+            case IN_PLACE -> InPlaceDesensitization.desensitizeContainer(value, annotatedType);
+            case CACHE -> resultCache.get(value, annotatedType, () -> TypeParserRegistry.INSTANCE.parseNext(this, value, annotatedType));
+        };
+    }
+
+    /**
+     * 存在{@link DesensitizationContext}时认领所有对象，以便统计每一个元素。该方法没有任何副作用，
+     * 计数、检查限制以及决定如何处理对象都在{@link #parse(Object, AnnotatedType)}中进行。
+     */
+    @Override
+    public boolean support(Object value, AnnotatedType annotatedType) {
+        return value != null && DesensitizationContext.current() != null;
+    }
+
+    /**
+     * 决定该解析器如何处理对象，不会修改上下文
+     *
+     * @param context       当前的上下文
+     * @param value         对象
+     * @param annotatedType 对象的{@link AnnotatedType}
+     * @return 认领该对象的原因，不需要该解析器处理时返回{@code null}
+     */
+    Claim claim(DesensitizationContext context, Object value, AnnotatedType annotatedType) {
+        if (annotatedType.getDeclaredAnnotation(Cascade.class) != null) {
+            return Claim.CASCADE;
+        }
+        if (resultCache != null && resultCache.cacheable(value, annotatedType)) {
+            return Claim.CACHE;
+        }
+        if (context.policy(Limit.ELEMENTS) == Policy.TRUNCATE && truncatable(value, annotatedType, context.remainingElements())) {
+            return Claim.TRUNCATE;
+        }
+        if (context.isInPlace() && InPlaceDesensitization.container(value, annotatedType)) {
+            return Claim.IN_PLACE;
+        }
+        if (!context.isLimited() && batchTypeParser(value, annotatedType) != null) {
+            return Claim.BATCH;
+        }
+        return null;
+    }
+
+    @Override
+    public int order() {
+        return TypeParserOrders.CASCADE;
+    }
+
+    /**
+     * 级联脱敏对象
+     *
+     * @param context       当前的上下文
+     * @param value         对象
+     * @param annotatedType 对象的{@link AnnotatedType}
+     * @return 脱敏后的对象
+     */
+    private Object cascade(DesensitizationContext context, Object value, AnnotatedType annotatedType) {
+        boolean memoizable = annotatedType.getDeclaredAnnotations().length == 1;
+        if (memoizable) {
+            Object cascaded = context.cascaded(value);
+            if (cascaded != null) {
+                // 原地脱敏时对象图中的环引用的仍然是同一个对象，所以直接保留该引用
+                return cascaded != DesensitizationContext.CASCADING ? cascaded : inPlace(context, value) ? value : null;
+            }
+            context.cascaded(value, DesensitizationContext.CASCADING);
+        }
+        context.enterCascade();
+        Object desensitized = null;
+        try {
+            desensitized = desensitize(context, value, annotatedType);
+            return desensitized;
+        } finally {
+            context.exitCascade();
+            if (memoizable) {
+                context.cascaded(value, desensitized);
+            }
+        }
+    }
+
+    /**
+     * @param context 当前的上下文
+     * @param value   对象
+     * @return 是否原地级联脱敏该对象
+     */
+    private static boolean inPlace(DesensitizationContext context, Object value) {
+        return context.isInPlace() && InPlaceDesensitization.cascadable(value);
+    }
+
+    /**
+     * 原地脱敏时直接修改对象，否则优先使用编译期生成的类型解析器级联脱敏对象，最后才交由内置的类型解析器处理
+     *
+     * @param context       当前的上下文
+     * @param value         对象
+     * @param annotatedType 对象的{@link AnnotatedType}
+     * @return 脱敏后的对象
+     */
+    @SuppressWarnings("unchecked")
+    private Object desensitize(DesensitizationContext context, Object value, AnnotatedType annotatedType) {
+        if (inPlace(context, value)) {
+            return InPlaceDesensitization.cascade(value);
+        }
+        GeneratedCascadeTypeParser<Object> generated = (GeneratedCascadeTypeParser<Object>) generatedCascadeTypeParsers.get(value.getClass());
+        if (generated != null) {
+            return generated.desensitize(value);
+        }
+        return TypeParserRegistry.INSTANCE.parseNext(this, value, annotatedType);
+    }
+
+    /**
+     * @param value 对象
+     * @param type  对象的{@link AnnotatedType}
+     * @return 能够批量脱敏该集合或者数组中元素的类型解析器，不能批量脱敏则返回{@code null}
+     */
+    private GeneratedCascadeTypeParser<?> batchTypeParser(Object value, AnnotatedType type) {
+        if (generatedCascadeTypeParsers.isEmpty()) {
+            return null;
+        }
+        AnnotatedType elementType;
+        if (value instanceof Collection<?> && type instanceof AnnotatedParameterizedType parameterizedType && Containers.instantiable(value.getClass())) {
+            elementType = parameterizedType.getAnnotatedActualTypeArguments()[0];
+        } else if (value instanceof Object[] && type instanceof AnnotatedArrayType arrayType) {
+            elementType = arrayType.getAnnotatedGenericComponentType();
+        } else {
+            return null;
+        }
+        if (!(elementType.getType() instanceof Class<?> elementClass) || elementType.getDeclaredAnnotations().length != 1
+                || elementType.getDeclaredAnnotation(Cascade.class) == null) {
+            return null;
+        }
+        GeneratedCascadeTypeParser<?> generated = generatedCascadeTypeParsers.get(elementClass);
+        return generated != null && generated.batchable() ? generated : null;
+    }
+
+    /**
+     * 批量脱敏集合或者数组中的元素。与逐个脱敏一样，每个元素都会被计数，已经脱敏过的对象会复用之前的结果，
+     * 类型与元素声明类型不一致的元素仍然交由{@link AnnotationParser}逐个脱敏。
+     *
+     * @param context 当前的上下文
+     * @param value   集合或者数组
+     * @param type    对象的{@link AnnotatedType}
+     * @return 脱敏后的集合或者数组
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object batch(DesensitizationContext context, Object value, AnnotatedType type) {
+        GeneratedCascadeTypeParser<Object> generated = (GeneratedCascadeTypeParser<Object>) batchTypeParser(value, type);
+        AnnotatedType elementType = type instanceof AnnotatedArrayType arrayType
+                ? arrayType.getAnnotatedGenericComponentType()
+                : ((AnnotatedParameterizedType) type).getAnnotatedActualTypeArguments()[0];
+        Object[] elements = value instanceof Collection<?> collection ? collection.toArray() : (Object[]) value;
+        Object[] results = new Object[elements.length];
+        List<Object> batch = new ArrayList<>(elements.length);
+        Map<Object, Integer> batchIndexes = new IdentityHashMap<>();
+        for (int i = 0; i < elements.length; i++) {
+            Object element = elements[i];
+            if (element == null) {
+                continue;
+            }
+            if (element.getClass() != generated.type()) {
+                results[i] = AnnotationParser.parse(element, elementType);
+                continue;
+            }
+            context.countElement();
+            Object cascaded = context.cascaded(element);
+            if (cascaded != null) {
+                results[i] = cascaded == DesensitizationContext.CASCADING ? null : cascaded;
+            } else if (batchIndexes.putIfAbsent(element, batch.size()) == null) {
+                batch.add(element);
+            }
+        }
+        List<Object> desensitized = List.of();
+        if (!batch.isEmpty()) {
+            context.enterCascade();
+            try {
+                desensitized = generated.desensitizeAll(batch);
+            } finally {
+                context.exitCascade();
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            context.cascaded(batch.get(i), desensitized.get(i));
+        }
+        for (int i = 0; i < elements.length; i++) {
+            Integer index = elements[i] == null ? null : batchIndexes.get(elements[i]);
+            if (index != null) {
+                results[i] = desensitized.get(index);
+            }
+        }
+        if (value instanceof Object[] array) {
+            Object[] result = (Object[]) Array.newInstance(array.getClass().getComponentType(), results.length);
+            System.arraycopy(results, 0, result, 0, results.length);
+            return result;
+        }
+        Collection result = (Collection) Containers.newInstance(value.getClass());
+        result.addAll(Arrays.asList(results));
+        return result;
+    }
+
+    /**
+     * @param value     对象
+     * @param type      对象的{@link AnnotatedType}
+     * @param remaining 还能处理的元素个数
+     * @return 该对象是否是元素个数会超出限制并且能够被截断的集合、数组或者{@link Map}
+     */
+    private static boolean truncatable(Object value, AnnotatedType type, long remaining) {
+        if (value instanceof Collection<?> collection) {
+            return collection.size() > remaining && type instanceof AnnotatedParameterizedType && Containers.instantiable(value.getClass());
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.size() > remaining && type instanceof AnnotatedParameterizedType && Containers.instantiable(value.getClass());
+        }
+        return value instanceof Object[] array && array.length > remaining && type instanceof AnnotatedArrayType;
+    }
+
+    /**
+     * 脱敏集合、数组或者{@link Map}中限制以内的元素，超出限制的元素会被丢弃。{@link Map}的每个键值对会占用两个元素的额度。
+     *
+     * @param context 当前的上下文
+     * @param value   集合、数组或者{@link Map}
+     * @param type    对象的{@link AnnotatedType}
+     * @return 截断并且脱敏后的对象
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object truncate(DesensitizationContext context, Object value, AnnotatedType type) {
+        long remaining = context.remainingElements();
+        if (value instanceof Collection<?> collection) {
+            AnnotatedType elementType = ((AnnotatedParameterizedType) type).getAnnotatedActualTypeArguments()[0];
+            Collection result = (Collection) Containers.newInstance(value.getClass());
+            Iterator<?> iterator = collection.iterator();
+            for (long i = 0; i < remaining && iterator.hasNext() && !context.isTruncated(); i++) {
+                result.add(AnnotationParser.parse(iterator.next(), elementType));
+            }
+            return result;
+        }
+        if (value instanceof Map<?, ?> map) {
+            AnnotatedType[] typeArguments = ((AnnotatedParameterizedType) type).getAnnotatedActualTypeArguments();
+            Map result = (Map) Containers.newInstance(value.getClass());
+            Iterator<? extends Map.Entry<?, ?>> iterator = map.entrySet().iterator();
+            for (long i = 0; i < remaining / 2 && iterator.hasNext() && !context.isTruncated(); i++) {
+                Map.Entry<?, ?> entry = iterator.next();
+                result.put(AnnotationParser.parse(entry.getKey(), typeArguments[0]), AnnotationParser.parse(entry.getValue(), typeArguments[1]));
+            }
+            return result;
+        }
+        Object[] array = (Object[]) value;
+        AnnotatedType componentType = ((AnnotatedArrayType) type).getAnnotatedGenericComponentType();
+        Object[] result = (Object[]) Array.newInstance(array.getClass().getComponentType(), (int) remaining);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = AnnotationParser.parse(array[i], componentType);
+        }
+        return result;
+    }
+
+    /**
+     * {@link CascadeTypeParser}认领一个对象的原因
+     */
+    enum Claim {
+
+        /**
+         * 元素个数会超出限制的集合、数组或者Map，只保留限制以内的元素
+         */
+        TRUNCATE,
+
+        /**
+         * 标注了{@link Cascade}注解的对象，超出最大级联深度时被截断
+         */
+        CASCADE,
+
+        /**
+         * 元素支持{@link GeneratedCascadeTypeParser#desensitizeAll(List) 批量脱敏}的集合或者数组
+         */
+        BATCH,
+
+        /**
+         * 脱敏结果可以被{@link DesensitizationResultCache}缓存的字符串
+         */
+        CACHE,
+
+        /**
+         * 原地脱敏时可以被原地修改的集合、Map或者数组
+         */
+        IN_PLACE
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 用来解析返回值类型为{@link CompletionStage}（例如{@link CompletableFuture}）的类型解析器，
+ * 脱敏会作为后续阶段在异步结果完成时进行，不会阻塞当前线程。异常完成的结果不会被脱敏，而是原样传递。
+ *
+ * @author zyc
+ */
+public class CompletionStageTypeParser implements TypeParser<CompletionStage<Object>, AnnotatedParameterizedType> {
+
+    @Override
+    public CompletionStage<Object> parse(CompletionStage<Object> completionStage, AnnotatedParameterizedType annotatedParameterizedType) {
+        AnnotatedType typeArgument = annotatedParameterizedType.getAnnotatedActualTypeArguments()[0];
+        DesensitizationContext.Settings settings = DesensitizationContext.capture();
+        return completionStage.thenApply(result -> settings.parse(result, typeArgument));
+    }
+
+    @Override
+    public boolean support(Object value, AnnotatedType annotatedType) {
+        return value instanceof CompletionStage && annotatedType instanceof AnnotatedParameterizedType;
+    }
+
+    @Override
+    public int order() {
+        return TypeParserOrders.CONTAINER;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Optional;
+
+/**
+ * 用来构造与原集合或者{@link java.util.Map}类型相同的新对象的工具类，只支持拥有公共无参构造器的类型
+ *
+ * @author zyc
+ */
+final class Containers {
+
+    private static final ClassValue<Optional<Constructor<?>>> CONSTRUCTORS = new ClassValue<>() {
+
+        @Override
+        protected Optional<Constructor<?>> computeValue(Class<?> type) {
+            try {
+                return Optional.of(type.getConstructor());
+            } catch (NoSuchMethodException e) {
+                return Optional.empty();
+            }
+        }
+    };
+
+    private Containers() {
+    }
+
+    /**
+     * @param type 类型
+     * @return 该类型是否拥有公共无参构造器
+     */
+    static boolean instantiable(Class<?> type) {
+        return CONSTRUCTORS.get(type).isPresent();
+    }
+
+    /**
+     * 通过公共无参构造器实例化该类型
+     *
+     * @param type 类型
+     * @return 该类型的新实例
+     */
+    static Object newInstance(Class<?> type) {
+        try {
+            return CONSTRUCTORS.get(type).orElseThrow().newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("无法实例化" + type.getName(), e);
+        }
+    }
+}
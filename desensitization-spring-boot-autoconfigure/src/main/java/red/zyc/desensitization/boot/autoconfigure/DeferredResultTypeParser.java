@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * 用来解析返回值类型为{@link DeferredResult}的类型解析器。{@link DeferredResult}无法被复制，
+ * 所以该解析器会返回一个新对象，原对象的结果被设置时脱敏后的结果会被转发到新对象中，
+ * 错误结果不会被脱敏，而是原样转发。
+ * <p>
+ * 新对象使用原对象构造时指定的超时时间，新对象超时、出错以及完成时会交给原对象自己的{@link DeferredResultProcessingInterceptor}处理，
+ * 因此原对象构造时指定的超时结果以及通过{@link DeferredResult#onTimeout(Runnable)}、{@link DeferredResult#onError(java.util.function.Consumer)}
+ * 和{@link DeferredResult#onCompletion(Runnable)}注册的回调与直接返回原对象时一样生效，超时结果同样会被脱敏后转发到新对象中。
+ * 原对象的超时时间以及{@link DeferredResultProcessingInterceptor}只能通过反射获取。
+ *
+ * @author zyc
+ */
+public class DeferredResultTypeParser implements TypeParser<DeferredResult<Object>, AnnotatedParameterizedType> {
+
+    private static final Method GET_TIMEOUT_VALUE = accessible(ReflectionUtils.findMethod(DeferredResult.class, "getTimeoutValue"));
+
+    private static final Method GET_INTERCEPTOR = accessible(ReflectionUtils.findMethod(DeferredResult.class, "getInterceptor"));
+
+    @Override
+    public DeferredResult<Object> parse(DeferredResult<Object> deferredResult, AnnotatedParameterizedType annotatedParameterizedType) {
+        AnnotatedType typeArgument = annotatedParameterizedType.getAnnotatedActualTypeArguments()[0];
+        DesensitizationContext.Settings settings = DesensitizationContext.capture();
+        DeferredResult<Object> desensitized = new DeferredResult<>((Long) ReflectionUtils.invokeMethod(GET_TIMEOUT_VALUE, deferredResult));
+        deferredResult.setResultHandler(result -> {
+            if (result instanceof Throwable) {
+                desensitized.setErrorResult(result);
+            } else {
+                desensitized.setResult(settings.parse(result, typeArgument));
+            }
+        });
+        // DeferredResult自己的DeferredResultProcessingInterceptor不会使用请求参数
+        DeferredResultProcessingInterceptor interceptor = (DeferredResultProcessingInterceptor) ReflectionUtils.invokeMethod(GET_INTERCEPTOR, deferredResult);
+        Objects.requireNonNull(interceptor);
+        desensitized.onTimeout(() -> forward(() -> interceptor.handleTimeout(null, deferredResult)));
+        desensitized.onError(throwable -> forward(() -> interceptor.handleError(null, deferredResult, throwable)));
+        desensitized.onCompletion(() -> forward(() -> {
+            interceptor.afterCompletion(null, deferredResult);
+            return null;
+        }));
+        return desensitized;
+    }
+
+    @Override
+    public boolean support(Object value, AnnotatedType annotatedType) {
+        return value instanceof DeferredResult && annotatedType instanceof AnnotatedParameterizedType;
+    }
+
+    @Override
+    public int order() {
+        return TypeParserOrders.CONTAINER;
+    }
+
+    private static void forward(Callable<?> callback) {
+        try {
+            callback.call();
+        } catch (Exception e) {
+            ReflectionUtils.rethrowRuntimeException(e);
+        }
+    }
+
+    private static Method accessible(Method method) {
+        ReflectionUtils.makeAccessible(Objects.requireNonNull(method));
+        return method;
+    }
+}
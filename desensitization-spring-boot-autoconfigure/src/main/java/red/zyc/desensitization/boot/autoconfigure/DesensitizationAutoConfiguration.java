@@ -16,30 +16,78 @@
 
 package red.zyc.desensitization.boot.autoconfigure;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.reactivestreams.Publisher;
+import org.springframework.aot.AotDetector;
 import org.springframework.aop.Advisor;
-import org.springframework.aop.aspectj.AspectJExpressionPointcutAdvisor;
-import org.springframework.boot.SpringApplication;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.Pointcuts;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
+import org.springframework.boot.autoconfigure.condition.ConditionMessage;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import red.zyc.parser.type.TypeParser;
 
 import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * @author zyc
  */
-@AutoConfiguration
+@AutoConfiguration(afterName = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
 @EnableConfigurationProperties(DesensitizationProperties.class)
+@Import(GeneratedCascadeTypeParserRegistrar.class)
+@ImportRuntimeHints(DesensitizationRuntimeHints.class)
 public class DesensitizationAutoConfiguration {
 
     private static final String DESENSITIZATION_ADVISOR = "desensitizationAdvisor";
     private final DesensitizationProperties desensitizationProperties;
-    static final ThreadLocal<SpringApplication> SPRING_APPLICATION_HOLDER = new ThreadLocal<>();
 
     public DesensitizationAutoConfiguration(DesensitizationProperties desensitizationProperties) {
         this.desensitizationProperties = desensitizationProperties;
@@ -47,11 +95,27 @@ public class DesensitizationAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean(name = DESENSITIZATION_ADVISOR)
-    public Advisor desensitizationAdvisor() {
-        AspectJExpressionPointcutAdvisor advisor = new AspectJExpressionPointcutAdvisor();
-        advisor.setAdvice(new MethodDesensitizationInterceptor());
-        advisor.setExpression(pointcutExpression());
-        return advisor;
+    public Advisor desensitizationAdvisor(ObjectProvider<DesensitizationMetrics> desensitizationMetrics, ObjectProvider<SerializationDesensitization> serializationDesensitization,
+                                          ObjectProvider<DesensitizationPolicy> desensitizationPolicy, BeanFactory beanFactory) {
+        MethodDesensitizationInterceptor interceptor = new MethodDesensitizationInterceptor(desensitizationMetrics.getIfAvailable(() -> DesensitizationMetrics.NONE),
+                serializationDesensitization.getIfAvailable(() -> SerializationDesensitization.NONE));
+        interceptor.setLazyArguments(desensitizationProperties.isLazyArguments());
+        interceptor.setLimits(desensitizationProperties.getLimits().toDesensitizationLimits());
+        interceptor.setInPlace(desensitizationProperties.isInPlace());
+        interceptor.setPolicy(desensitizationPolicy.getIfAvailable(() -> DesensitizationPolicy.ALWAYS));
+        interceptor.setOwner(beanFactory);
+        ClassLoader classLoader = beanFactory instanceof ConfigurableBeanFactory configurableBeanFactory ? configurableBeanFactory.getBeanClassLoader() : ClassUtils.getDefaultClassLoader();
+        Supplier<DesensitizationMethods> desensitizationMethods = () -> AotDetector.useGeneratedArtifacts() ? DesensitizationMethods.load(classLoader) : null;
+        String pointcutExpression = desensitizationProperties.getPointcutExpression();
+        Pointcut pointcut = pointcutExpression == null
+                ? new DesensitizationPointcut(() -> packages(beanFactory), desensitizationMethods)
+                : AspectJPointcuts.intersection(pointcutExpression, new DesensitizationPointcut(List::of, desensitizationMethods));
+        return new DefaultPointcutAdvisor(pointcut, interceptor);
+    }
+
+    @Bean
+    public TypeParserRegistration typeParserRegistration(ObjectProvider<TypeParser<?, ?>> typeParsers, BeanFactory beanFactory) {
+        return new TypeParserRegistration(beanFactory, typeParsers);
     }
 
     @Bean
@@ -59,13 +123,228 @@ public class DesensitizationAutoConfiguration {
         return new ResponseEntityTypeParser();
     }
 
+    @Bean
+    @Conditional(EnvelopesCondition.class)
+    public TypeParser<Object, AnnotatedParameterizedType> envelopeTypeParser() {
+        Map<Class<?>, String> payloads = new LinkedHashMap<>();
+        for (DesensitizationProperties.Envelope envelope : desensitizationProperties.getEnvelopes()) {
+            Assert.state(envelope.getType() != null && envelope.getPayload() != null, "响应实体的type以及payload都必须配置");
+            payloads.put(envelope.getType(), envelope.getPayload());
+        }
+        return new EnvelopeTypeParser(payloads);
+    }
+
+    @Bean
+    public TypeParser<Object, AnnotatedType> cascadeTypeParser(ObjectProvider<GeneratedCascadeTypeParser<?>> generatedCascadeTypeParsers,
+                                                               ObjectProvider<DesensitizationResultCache> desensitizationResultCache) {
+        return new CascadeTypeParser(generatedCascadeTypeParsers.stream().toList(), desensitizationResultCache.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "desensitization.parallel", name = "enabled", havingValue = "true")
+    public TypeParser<Object, AnnotatedType> parallelTypeParser() {
+        DesensitizationProperties.Parallel parallel = desensitizationProperties.getParallel();
+        Assert.isTrue(parallel.getThreshold() > 0 && parallel.getParallelism() > 0, "并行脱敏的阈值以及并行度必须大于0！");
+        ExecutorService executor = parallel.isVirtualThreads() ? Executors.newVirtualThreadPerTaskExecutor() : new ForkJoinPool(parallel.getParallelism());
+        return new ParallelTypeParser(parallel.getThreshold(), parallel.getParallelism(), executor);
+    }
+
+    /**
+     * 默认的包来自当前spring上下文中的{@link AutoConfigurationPackages}，即标注了{@code @SpringBootApplication}的启动类所在的包，
+     * 因此多个spring上下文同时启动时也不会互相影响
+     *
+     * @param beanFactory 当前spring上下文的{@link BeanFactory}
+     * @return 需要脱敏的类所在的包
+     */
+    private List<String> packages(BeanFactory beanFactory) {
+        if (!desensitizationProperties.getPackages().isEmpty()) {
+            return desensitizationProperties.getPackages();
+        }
+        Assert.state(AutoConfigurationPackages.has(beanFactory), "无法获取spring-boot工程启动类所在的包，请通过desensitization.packages指定需要脱敏的类所在的包");
+        return AutoConfigurationPackages.get(beanFactory);
+    }
+
+    /**
+     * 隔离对AspectJ的引用，只有显式配置了切点表达式时才会加载该类
+     */
+    private static final class AspectJPointcuts {
+
+        private static final String ASPECTJ_WEAVER = "org.aspectj.weaver.tools.PointcutParser";
+
+        static Pointcut intersection(String expression, Pointcut pointcut) {
+            Assert.state(ClassUtils.isPresent(ASPECTJ_WEAVER, AspectJPointcuts.class.getClassLoader()), "配置了切点表达式时需要添加aspectjweaver依赖");
+            AspectJExpressionPointcut expressionPointcut = new AspectJExpressionPointcut();
+            expressionPointcut.setExpression(expression);
+            return Pointcuts.intersection(expressionPointcut, pointcut);
+        }
+    }
+
+    /**
+     * 通过{@link Binder}绑定{@code desensitization.envelopes}来判断是否配置了响应实体，
+     * 因此与{@link DesensitizationProperties}一样支持宽松绑定，例如环境变量{@code DESENSITIZATION_ENVELOPES_0_TYPE}
+     */
+    static final class EnvelopesCondition extends SpringBootCondition {
+
+        @Override
+        public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            ConditionMessage.Builder message = ConditionMessage.forCondition("Desensitization envelopes");
+            return Binder.get(context.getEnvironment())
+                    .bind("desensitization.envelopes", Bindable.listOf(DesensitizationProperties.Envelope.class))
+                    .map(envelopes -> ConditionOutcome.match(message.found("envelope", "envelopes").items(envelopes.stream().map(DesensitizationProperties.Envelope::getType).toList())))
+                    .orElseGet(() -> ConditionOutcome.noMatch(message.didNotFind("property").items("desensitization.envelopes")));
+        }
+    }
+
     /**
-     * @return 切点表达式字符串
+     * 异步类型的类型解析器，脱敏会在异步结果完成时进行
      */
-    private String pointcutExpression() {
-        SpringApplication springApplication = SPRING_APPLICATION_HOLDER.get();
-        Assert.notNull(springApplication, () -> "无法获取SpringApplication！当前应用可能不是spring-boot工程。");
-        return Optional.ofNullable(desensitizationProperties.getPointcutExpression()).orElse("execution(* " + springApplication.getMainApplicationClass().getPackage().getName() + "..*.*(..))");
+    @Configuration(proxyBeanMethods = false)
+    static class AsyncTypeParserConfiguration {
+
+        @Bean
+        public TypeParser<CompletionStage<Object>, AnnotatedParameterizedType> completionStageTypeParser() {
+            return new CompletionStageTypeParser();
+        }
+
+        @Bean
+        public TypeParser<Callable<Object>, AnnotatedParameterizedType> callableTypeParser() {
+            return new CallableTypeParser();
+        }
+
+        @Bean
+        public TypeParser<DeferredResult<Object>, AnnotatedParameterizedType> deferredResultTypeParser() {
+            return new DeferredResultTypeParser();
+        }
+
+        @Bean
+        public TypeParser<WebAsyncTask<Object>, AnnotatedParameterizedType> webAsyncTaskTypeParser() {
+            return new WebAsyncTaskTypeParser();
+        }
+    }
+
+    /**
+     * 在发送元素时才进行脱敏的emitter的类型解析器
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(ResponseBodyEmitter.class)
+    static class EmitterTypeParserConfiguration {
+
+        @Bean
+        public TypeParser<ResponseBodyEmitter, AnnotatedParameterizedType> desensitizedEmitterTypeParser() {
+            return new DesensitizedEmitterTypeParser();
+        }
+    }
+
+    /**
+     * {@link Stream}以及{@link Optional}的类型解析器
+     */
+    @Configuration(proxyBeanMethods = false)
+    static class ContainerTypeParserConfiguration {
+
+        @Bean
+        public TypeParser<Stream<Object>, AnnotatedParameterizedType> streamTypeParser() {
+            return new StreamTypeParser();
+        }
+
+        @Bean
+        public TypeParser<Optional<Object>, AnnotatedParameterizedType> optionalTypeParser() {
+            return new OptionalTypeParser();
+        }
+    }
+
+    /**
+     * spring-data分页类型的类型解析器
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(Slice.class)
+    static class SpringDataTypeParserConfiguration {
+
+        @Bean
+        public TypeParser<Slice<Object>, AnnotatedParameterizedType> sliceTypeParser() {
+            return new SliceTypeParser();
+        }
+    }
+
+    /**
+     * 响应式类型的类型解析器
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(Flux.class)
+    static class ReactiveTypeParserConfiguration {
+
+        @Bean
+        public TypeParser<Mono<Object>, AnnotatedParameterizedType> monoTypeParser() {
+            return new MonoTypeParser();
+        }
+
+        @Bean
+        public TypeParser<Flux<Object>, AnnotatedParameterizedType> fluxTypeParser() {
+            return new FluxTypeParser();
+        }
+
+        @Bean
+        public TypeParser<Publisher<Object>, AnnotatedParameterizedType> publisherTypeParser() {
+            return new PublisherTypeParser();
+        }
+    }
+
+    /**
+     * 缓存相同注解脱敏相同字符串的结果
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(Caffeine.class)
+    @ConditionalOnProperty(prefix = "desensitization.cache", name = "enabled", havingValue = "true")
+    static class ResultCacheConfiguration {
+
+        @Bean
+        public DesensitizationResultCache desensitizationResultCache(DesensitizationProperties desensitizationProperties) {
+            DesensitizationProperties.Cache cache = desensitizationProperties.getCache();
+            Assert.isTrue(cache.getMaximumSize() > 0, "脱敏结果缓存的最大个数必须大于0！");
+            return new DesensitizationResultCache(cache.getMaximumSize(), cache.getTimeToLive(), cache.getAnnotations());
+        }
+    }
+
+    /**
+     * 在spring上下文中存在{@link MeterRegistry}时记录脱敏指标
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnBean(MeterRegistry.class)
+    @ConditionalOnProperty(prefix = "desensitization.metrics", name = "enabled", matchIfMissing = true)
+    static class DesensitizationMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public DesensitizationMetrics desensitizationMetrics(MeterRegistry meterRegistry, DesensitizationProperties desensitizationProperties) {
+            return new MicrometerDesensitizationMetrics(meterRegistry, desensitizationProperties.getMetrics().getSampleRate());
+        }
+
+        @Bean
+        @ConditionalOnBean(DesensitizationResultCache.class)
+        public MeterBinder desensitizationResultCacheMetrics(DesensitizationResultCache desensitizationResultCache) {
+            return desensitizationResultCache::bindTo;
+        }
+    }
+
+    /**
+     * 在Jackson序列化spring-mvc处理器方法的返回值时进行脱敏
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass({ObjectMapper.class, DispatcherServlet.class})
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(prefix = "desensitization.jackson", name = "enabled", havingValue = "true")
+    static class JacksonDesensitizationConfiguration {
+
+        @Bean
+        public DesensitizationJacksonModule desensitizationJacksonModule() {
+            return new DesensitizationJacksonModule();
+        }
+
+        @Bean
+        @ConditionalOnMissingBean(SerializationDesensitization.class)
+        public JacksonSerializationDesensitization jacksonSerializationDesensitization(ObjectProvider<RequestMappingHandlerAdapter> requestMappingHandlerAdapters) {
+            return new JacksonSerializationDesensitization(requestMappingHandlerAdapters);
+        }
     }
 
 }
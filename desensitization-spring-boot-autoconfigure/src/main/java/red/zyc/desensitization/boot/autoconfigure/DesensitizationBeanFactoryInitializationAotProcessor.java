@@ -0,0 +1,178 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.aot.generate.GenerationContext;
+import org.springframework.aot.hint.ExecutableMode;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationCode;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import red.zyc.parser.type.Cascade;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 在Spring AOT处理时分析所有bean的类型，为GraalVM原生镜像以及AOT运行模式做准备：
+ * <ul>
+ *     <li>将参数或返回值需要被脱敏的方法写入{@link DesensitizationMethods#LOCATION}，运行时不再通过反射分析方法签名</li>
+ *     <li>为这些方法、方法签名中的敏感注解以及需要级联脱敏的类及其字段注册反射提示，以便脱敏过程中的反射在原生镜像中可用</li>
+ * </ul>
+ * 方法的{@link MethodDesensitizationPlan 脱敏计划}由{@link java.lang.reflect.AnnotatedType}构成，无法在构建期生成代码，
+ * 仍然在方法第一次被调用时计算，但计算所需的反射信息都已经注册。
+ *
+ * @author zyc
+ */
+class DesensitizationBeanFactoryInitializationAotProcessor implements BeanFactoryInitializationAotProcessor {
+
+    @Override
+    public BeanFactoryInitializationAotContribution processAheadOfTime(ConfigurableListableBeanFactory beanFactory) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            Class<?> beanType = beanFactory.getType(beanName, false);
+            if (beanType != null) {
+                collectTypes(ClassUtils.getUserClass(beanType), types);
+            }
+        }
+        Map<Class<?>, List<Method>> methods = new LinkedHashMap<>();
+        for (Class<?> type : types) {
+            methods.put(type, Arrays.stream(ReflectionUtils.getDeclaredMethods(type))
+                    .filter(method -> !method.isSynthetic() && !method.isBridge())
+                    .filter(MethodDesensitizationInterceptor::needDesensitized)
+                    .toList());
+        }
+        return methods.values().stream().allMatch(List::isEmpty) ? null : new Contribution(methods);
+    }
+
+    /**
+     * 收集类及其所有父类和接口
+     */
+    private static void collectTypes(Class<?> type, Set<Class<?>> types) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            types.add(current);
+        }
+        types.addAll(ClassUtils.getAllInterfacesForClassAsSet(type));
+    }
+
+    private static class Contribution implements BeanFactoryInitializationAotContribution {
+
+        private final Map<Class<?>, List<Method>> methods;
+
+        private Contribution(Map<Class<?>, List<Method>> methods) {
+            this.methods = methods;
+        }
+
+        @Override
+        public void applyTo(GenerationContext generationContext, BeanFactoryInitializationCode beanFactoryInitializationCode) {
+            RuntimeHints hints = generationContext.getRuntimeHints();
+            StringBuilder content = new StringBuilder();
+            Set<Class<?>> visited = new HashSet<>();
+            methods.forEach((type, typeMethods) -> {
+                content.append(escape(type.getName())).append('=')
+                        .append(typeMethods.stream().map(DesensitizationMethods::signature).map(this::escape).collect(Collectors.joining(DesensitizationMethods.SEPARATOR)))
+                        .append('\n');
+                for (Method method : typeMethods) {
+                    hints.reflection().registerMethod(method, ExecutableMode.INTROSPECT);
+                    List<AnnotatedType> annotatedTypes = new ArrayList<>(List.of(method.getAnnotatedParameterTypes()));
+                    annotatedTypes.add(method.getAnnotatedReturnType());
+                    annotatedTypes.forEach(annotatedType -> registerHints(hints, annotatedType, visited));
+                }
+            });
+            generationContext.getGeneratedFiles().addResourceFile(DesensitizationMethods.LOCATION, content);
+            hints.resources().registerPattern(DesensitizationMethods.LOCATION);
+        }
+
+        /**
+         * 为对象的{@link AnnotatedType}及其嵌套的{@link AnnotatedType}中的注解以及需要级联脱敏的类注册反射提示，
+         * 遍历方式与{@link MethodDesensitizationInterceptor#needDesensitized(AnnotatedType)}一致
+         */
+        private void registerHints(RuntimeHints hints, AnnotatedType annotatedType, Set<Class<?>> visited) {
+            MethodDesensitizationInterceptor.anyMatch(annotatedType, type -> {
+                for (Annotation annotation : type.getDeclaredAnnotations()) {
+                    hints.reflection().registerType(annotation.annotationType(), MemberCategory.INVOKE_PUBLIC_METHODS);
+                }
+                if (type.getDeclaredAnnotation(Cascade.class) != null) {
+                    registerCascadeType(hints, rawType(type.getType()), visited);
+                }
+                return false;
+            });
+        }
+
+        /**
+         * 级联脱敏时会通过反射读写类及其父类的所有字段并构造新的对象
+         */
+        private void registerCascadeType(RuntimeHints hints, Class<?> type, Set<Class<?>> visited) {
+            for (Class<?> current = type; current != null && current != Object.class && visited.add(current); current = current.getSuperclass()) {
+                hints.reflection().registerType(current, MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        registerHints(hints, field.getAnnotatedType(), visited);
+                    }
+                }
+            }
+        }
+
+        private static Class<?> rawType(Type type) {
+            if (type instanceof Class<?> clazz) {
+                return clazz;
+            }
+            if (type instanceof TypeVariable<?> typeVariable) {
+                return rawType(typeVariable.getBounds()[0]);
+            }
+            return type instanceof ParameterizedType parameterizedType ? (Class<?>) parameterizedType.getRawType() : null;
+        }
+
+        /**
+         * 转义properties文件中的特殊字符，非ASCII字符（例如中文方法名）转义为Unicode转义序列，
+         * 因为{@link java.util.Properties#load(java.io.InputStream)}按照ISO-8859-1读取文件
+         */
+        private String escape(String value) {
+            StringBuilder escaped = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\\' || c == '=' || c == ':' || c == ' ') {
+                    escaped.append('\\').append(c);
+                } else if (c > 0x7e) {
+                    escaped.append(String.format("\\u%04x", (int) c));
+                } else {
+                    escaped.append(c);
+                }
+            }
+            return escaped.toString();
+        }
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationLimits.Limit;
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationLimits.Policy;
+
+import red.zyc.parser.AnnotationParser;
+
+import java.lang.reflect.AnnotatedType;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * 一次脱敏过程的上下文，由{@link MethodDesensitizationInterceptor}在脱敏参数或返回值之前绑定到当前线程，
+ * 脱敏结束之后解除绑定。在此期间脱敏过程中的类型解析器可以通过{@link #current()}获取该上下文，
+ * 记录处理过的元素个数以及级联脱敏的深度等信息，并检查是否超出了{@link DesensitizationLimits}中的限制。
+ *
+ * @author zyc
+ */
+final class DesensitizationContext {
+
+    /**
+     * 正在被级联脱敏的对象在{@link #cascaded}中对应的值
+     */
+    static final Object CASCADING = new Object();
+
+    private static final ThreadLocal<DesensitizationContext> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 外层的上下文，脱敏过程中可能会调用其它需要被脱敏的方法
+     */
+    private final DesensitizationContext previous;
+
+    /**
+     * 开启本次脱敏的spring上下文，{@link TypeParserRegistry}只会使用该spring上下文登记的类型解析器
+     */
+    private final Object owner;
+
+    private final DesensitizationLimits limits;
+
+    /**
+     * 脱敏的截止时间，只有配置了最大耗时才有意义
+     */
+    private final long deadline;
+
+    /**
+     * 已经被级联脱敏过的对象与其脱敏结果的映射，以对象的引用作为键
+     */
+    private Map<Object, Object> cascaded;
+
+    /**
+     * 处理过的元素个数
+     */
+    private long elements;
+
+    /**
+     * 当前级联脱敏的深度
+     */
+    private int depth;
+
+    /**
+     * 到达过的最大级联脱敏深度
+     */
+    private int maxDepth;
+
+    /**
+     * 第一个被超出的限制
+     */
+    private Limit exceeded;
+
+    /**
+     * 是否已经因为超出限制而截断，截断之后遇到的对象都会被脱敏为{@code null}
+     */
+    private boolean truncated;
+
+    /**
+     * 是否原地脱敏
+     *
+     * @see DesensitizeInPlace
+     */
+    private final boolean inPlace;
+
+    /**
+     * {@link TypeParserRegistry}是否已经为被脱敏的对象查找过类型解析器
+     */
+    private boolean resolved;
+
+    /**
+     * {@link TypeParserRegistry}为被脱敏的对象找到的类型解析器
+     */
+    private Class<?> parser;
+
+    private DesensitizationContext(DesensitizationContext previous, Object owner, DesensitizationLimits limits, long deadline, boolean inPlace) {
+        this.previous = previous;
+        this.owner = owner;
+        this.limits = limits;
+        this.deadline = deadline;
+        this.inPlace = inPlace;
+    }
+
+    /**
+     * 创建一个新的上下文并绑定到当前线程
+     *
+     * @param owner    开启本次脱敏的spring上下文，{@code null}表示最近登记的spring上下文
+     * @param limits   脱敏的限制
+     * @param deadline 脱敏的截止时间，以{@link System#nanoTime()}为准，只有配置了最大耗时才有意义
+     * @param inPlace  是否原地脱敏
+     * @return 新的上下文
+     */
+    static DesensitizationContext open(Object owner, DesensitizationLimits limits, long deadline, boolean inPlace) {
+        DesensitizationContext context = new DesensitizationContext(CURRENT.get(), owner, limits, deadline, inPlace);
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * @return 绑定到当前线程的上下文，如果当前没有正在进行的脱敏则返回{@code null}
+     */
+    static DesensitizationContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 捕获当前上下文的设置，以便在当前上下文之外继续脱敏，例如异步结果完成时、元素被消费时或者在其它线程中
+     *
+     * @return 当前上下文的设置，如果当前没有正在进行的脱敏则返回{@link Settings#DETACHED}
+     */
+    static Settings capture() {
+        DesensitizationContext context = CURRENT.get();
+        return context == null ? Settings.DETACHED : new Settings(context.owner, context.limits, context.inPlace);
+    }
+
+    /**
+     * 解除当前上下文与线程的绑定，并恢复外层的上下文
+     */
+    void close() {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * 记录处理了一个元素，并检查是否超出了最大元素个数以及最大耗时，耗时每处理64个元素才检查一次
+     *
+     * @return 该元素是否因为截断而需要被脱敏为{@code null}
+     * @throws DesensitizationLimitExceededException 超出了限制并且处理策略不是{@link Policy#TRUNCATE}
+     */
+    boolean countElement() {
+        if (truncated) {
+            return true;
+        }
+        elements++;
+        if (limits.maxElements() >= 0 && elements > limits.maxElements()) {
+            return exceed(Limit.ELEMENTS);
+        }
+        return limits.maxNanos() >= 0 && (elements & 63) == 1 && System.nanoTime() - deadline > 0 && exceed(Limit.DURATION);
+    }
+
+    /**
+     * @return 在不超出最大元素个数的前提下还能处理的元素个数
+     */
+    long remainingElements() {
+        return limits.maxElements() < 0 ? Long.MAX_VALUE : Math.max(limits.maxElements() - elements, 0);
+    }
+
+    /**
+     * @return 是否配置了任何限制
+     */
+    boolean isLimited() {
+        return limits.isLimited();
+    }
+
+    /**
+     * @param limit 限制
+     * @return 超出该限制后的处理策略
+     */
+    Policy policy(Limit limit) {
+        return limits.policy(limit);
+    }
+
+    /**
+     * 检查进入下一层级联脱敏是否会超出最大级联脱敏深度
+     *
+     * @return 是否超出了最大级联脱敏深度并且需要将该对象脱敏为{@code null}
+     * @throws DesensitizationLimitExceededException 超出了限制并且处理策略不是{@link Policy#TRUNCATE}
+     */
+    boolean exceedsCascadeDepth() {
+        return limits.maxCascadeDepth() >= 0 && depth >= limits.maxCascadeDepth() && exceed(Limit.CASCADE_DEPTH);
+    }
+
+    /**
+     * 处理超出的限制
+     *
+     * @param limit 超出的限制
+     * @return 总是返回{@code true}，表示当前对象需要被脱敏为{@code null}
+     * @throws DesensitizationLimitExceededException 处理策略不是{@link Policy#TRUNCATE}
+     */
+    private boolean exceed(Limit limit) {
+        if (exceeded == null) {
+            exceeded = limit;
+        }
+        Policy policy = limits.policy(limit);
+        if (policy != Policy.TRUNCATE) {
+            throw new DesensitizationLimitExceededException(limit, policy);
+        }
+        // 级联深度只截断超出深度的对象，其它限制截断之后的所有对象
+        truncated = limit != Limit.CASCADE_DEPTH;
+        return true;
+    }
+
+    /**
+     * 进入下一层级联脱敏
+     */
+    void enterCascade() {
+        maxDepth = Math.max(maxDepth, ++depth);
+    }
+
+    /**
+     * 退出当前层级联脱敏
+     */
+    void exitCascade() {
+        depth--;
+    }
+
+    /**
+     * @return 是否正在级联脱敏某个对象
+     */
+    boolean isCascading() {
+        return depth > 0;
+    }
+
+    /**
+     * 合并在其它线程中以当前上下文的设置脱敏时处理的元素个数以及到达的级联深度
+     *
+     * @param context 以当前上下文的设置创建的上下文
+     */
+    void merge(DesensitizationContext context) {
+        elements += context.elements;
+        maxDepth = Math.max(maxDepth, depth + context.maxDepth);
+    }
+
+    /**
+     * @param value 对象
+     * @return 该对象的级联脱敏结果，如果该对象正在被级联脱敏则返回{@link #CASCADING}，如果该对象还没有被级联脱敏则返回{@code null}
+     */
+    Object cascaded(Object value) {
+        return cascaded == null ? null : cascaded.get(value);
+    }
+
+    /**
+     * 记录对象的级联脱敏结果
+     *
+     * @param value        对象
+     * @param desensitized 该对象的级联脱敏结果，如果该对象正在被级联脱敏则为{@link #CASCADING}
+     */
+    void cascaded(Object value, Object desensitized) {
+        if (cascaded == null) {
+            cascaded = new IdentityHashMap<>();
+        }
+        cascaded.put(value, desensitized);
+    }
+
+    /**
+     * 记录{@link TypeParserRegistry}找到的类型解析器，只有第一次查找，即为被脱敏的对象本身查找的结果会被记录
+     *
+     * @param parser 找到的类型解析器，没有找到时为{@code null}
+     */
+    void resolved(Class<?> parser) {
+        if (!resolved) {
+            resolved = true;
+            this.parser = parser;
+        }
+    }
+
+    /**
+     * @return {@link TypeParserRegistry}为被脱敏的对象找到的类型解析器，如果没有找到则返回{@code null}
+     */
+    Class<?> parser() {
+        return parser;
+    }
+
+    /**
+     * @return 开启本次脱敏的spring上下文，{@code null}表示最近登记的spring上下文
+     */
+    Object owner() {
+        return owner;
+    }
+
+    /**
+     * @return 是否原地脱敏
+     */
+    boolean isInPlace() {
+        return inPlace;
+    }
+
+    /**
+     * @return 是否已经因为超出限制而截断
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return 第一个被超出的限制，如果没有超出任何限制则返回{@code null}
+     */
+    Limit exceeded() {
+        return exceeded;
+    }
+
+    long elements() {
+        return elements;
+    }
+
+    int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * 通过{@link #capture()}捕获的上下文设置。每次{@link #parse(Object, AnnotatedType)}都会在一个以该设置创建的新上下文中进行，
+     * 因此{@link DesensitizationLimits}中的限制对每个延迟脱敏的对象（例如流中的每个元素、异步结果）单独生效，
+     * 超出限制并且处理策略是{@link Policy#MASK}时该对象会被{@link DesensitizationLimits#mask(Object) 替换为占位符}。
+     * 延迟脱敏发生在方法返回之后，所以不会记录{@link DesensitizationMetrics}。
+     *
+     * @param owner   开启脱敏的spring上下文
+     * @param limits  脱敏的限制
+     * @param inPlace 是否原地脱敏
+     */
+    record Settings(Object owner, DesensitizationLimits limits, boolean inPlace) {
+
+        /**
+         * 在没有上下文时捕获的设置，脱敏时不会创建新的上下文
+         */
+        static final Settings DETACHED = new Settings(null, DesensitizationLimits.NONE, false);
+
+        /**
+         * 以该设置创建一个新的上下文并绑定到当前线程
+         *
+         * @return 新的上下文，如果是{@link #DETACHED}则返回{@code null}
+         */
+        DesensitizationContext open() {
+            if (this == DETACHED) {
+                return null;
+            }
+            return DesensitizationContext.open(owner, limits, limits.maxNanos() >= 0 ? System.nanoTime() + limits.maxNanos() : 0, inPlace);
+        }
+
+        /**
+         * 在一个以该设置创建的新上下文中脱敏对象
+         *
+         * @param value         需要脱敏的对象
+         * @param annotatedType 对象的{@link AnnotatedType}
+         * @param <T>           对象的类型
+         * @return 脱敏后的对象
+         */
+        @SuppressWarnings("unchecked")
+        <T> T parse(T value, AnnotatedType annotatedType) {
+            DesensitizationContext context = open();
+            if (context == null) {
+                return AnnotationParser.parse(value, annotatedType);
+            }
+            try {
+                return AnnotationParser.parse(value, annotatedType);
+            } catch (DesensitizationLimitExceededException e) {
+                if (e.getPolicy() != Policy.MASK) {
+                    throw e;
+                }
+                return (T) limits.mask(value);
+            } finally {
+                context.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.AnnotatedField;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.util.ReflectionUtils;
+import red.zyc.parser.AnnotationParser;
+import red.zyc.parser.handler.Parse;
+import red.zyc.parser.type.Cascade;
+
+import java.io.IOException;
+import java.lang.reflect.AnnotatedArrayType;
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 在序列化的同时进行脱敏的Jackson模块。该模块会序列化{@link AnnotatedValue}，按照其{@link AnnotatedType}
+ * 逐个写出集合、数组以及{@link Map}中的元素，遇到标注了敏感注解的对象时只对该对象本身进行脱敏，
+ * 遇到标注了{@link Cascade}注解的对象时则在序列化该对象的属性时对标注了敏感注解的属性进行脱敏，
+ * 整个过程中不会重新构造集合或者对象。
+ *
+ * @author zyc
+ * @see JacksonSerializationDesensitization
+ */
+public class DesensitizationJacksonModule extends SimpleModule {
+
+    /**
+     * 序列化属性的键，其值为当前正在被级联脱敏的对象
+     */
+    private static final Object CASCADE_ATTRIBUTE = new Object();
+
+    public DesensitizationJacksonModule() {
+        super(DesensitizationJacksonModule.class.getSimpleName());
+        addSerializer(AnnotatedValue.class, new AnnotatedValueSerializer());
+        setSerializerModifier(new DesensitizationBeanSerializerModifier());
+    }
+
+    /**
+     * 按照{@link AnnotatedType}序列化对象
+     *
+     * @param value         对象
+     * @param annotatedType 对象的{@link AnnotatedType}
+     * @param generator     {@link JsonGenerator}
+     * @param provider      {@link SerializerProvider}
+     * @throws IOException 序列化异常
+     */
+    static void serialize(Object value, AnnotatedType annotatedType, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (value == null) {
+            provider.defaultSerializeNull(generator);
+        } else if (value instanceof Collection<?> collection && annotatedType instanceof AnnotatedParameterizedType annotatedParameterizedType) {
+            AnnotatedType elementType = annotatedParameterizedType.getAnnotatedActualTypeArguments()[0];
+            generator.writeStartArray();
+            for (Object element : collection) {
+                serialize(element, elementType, generator, provider);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Object[] array && annotatedType instanceof AnnotatedArrayType annotatedArrayType) {
+            AnnotatedType componentType = annotatedArrayType.getAnnotatedGenericComponentType();
+            generator.writeStartArray();
+            for (Object element : array) {
+                serialize(element, componentType, generator, provider);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Map<?, ?> map && annotatedType instanceof AnnotatedParameterizedType annotatedParameterizedType) {
+            AnnotatedType[] typeArguments = annotatedParameterizedType.getAnnotatedActualTypeArguments();
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                Object key = AnnotationParser.parse(entry.getKey(), typeArguments[0]);
+                JsonSerializer<Object> keySerializer = key == null
+                        ? provider.findNullKeySerializer(provider.constructType(typeArguments[0].getType()), null)
+                        : provider.findKeySerializer(key.getClass(), null);
+                keySerializer.serialize(key, generator, provider);
+                serialize(entry.getValue(), typeArguments[1], generator, provider);
+            }
+            generator.writeEndObject();
+        } else if (Arrays.stream(annotatedType.getDeclaredAnnotations()).anyMatch(annotation -> annotation.annotationType().isAnnotationPresent(Parse.class))) {
+            provider.defaultSerializeValue(AnnotationParser.parse(value, annotatedType), generator);
+        } else if (annotatedType.getDeclaredAnnotation(Cascade.class) != null) {
+            Object previous = provider.getAttribute(CASCADE_ATTRIBUTE);
+            provider.setAttribute(CASCADE_ATTRIBUTE, value);
+            try {
+                provider.defaultSerializeValue(value, generator);
+            } finally {
+                provider.setAttribute(CASCADE_ATTRIBUTE, previous);
+            }
+        } else {
+            provider.defaultSerializeValue(value, generator);
+        }
+    }
+
+    /**
+     * 需要在序列化时按照{@link AnnotatedType}进行脱敏的对象
+     *
+     * @param value         对象
+     * @param annotatedType 对象的{@link AnnotatedType}
+     */
+    public record AnnotatedValue(Object value, AnnotatedType annotatedType) {
+    }
+
+    /**
+     * {@link AnnotatedValue}的序列化器
+     */
+    static class AnnotatedValueSerializer extends StdSerializer<AnnotatedValue> {
+
+        AnnotatedValueSerializer() {
+            super(AnnotatedValue.class);
+        }
+
+        @Override
+        public void serialize(AnnotatedValue annotatedValue, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            DesensitizationJacksonModule.serialize(annotatedValue.value(), annotatedValue.annotatedType(), generator, provider);
+        }
+    }
+
+    /**
+     * 将那些字段类型需要脱敏的属性替换成{@link DesensitizationBeanPropertyWriter}
+     */
+    static class DesensitizationBeanSerializerModifier extends BeanSerializerModifier {
+
+        @Override
+        public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc, List<BeanPropertyWriter> beanProperties) {
+            List<BeanPropertyDefinition> propertyDefinitions = beanDesc.findProperties();
+            for (int i = 0; i < beanProperties.size(); i++) {
+                BeanPropertyWriter writer = beanProperties.get(i);
+                Field field = writer.getMember() instanceof AnnotatedField annotatedField ? annotatedField.getAnnotated() : field(beanDesc.getBeanClass(), propertyDefinitions, writer.getName());
+                if (field != null && MethodDesensitizationInterceptor.needDesensitized(field.getAnnotatedType())) {
+                    beanProperties.set(i, new DesensitizationBeanPropertyWriter(writer, field.getAnnotatedType()));
+                }
+            }
+            return beanProperties;
+        }
+
+        /**
+         * 通过属性定义查找属性对应的字段。属性的序列化名称可能由{@link com.fasterxml.jackson.annotation.JsonProperty}
+         * 或者命名策略改写，因此不能直接用序列化名称查找字段，而是使用属性定义中的字段或者属性的内部名称。
+         *
+         * @param beanClass           对象的类型
+         * @param propertyDefinitions 对象的属性定义
+         * @param name                属性的序列化名称
+         * @return 属性对应的字段，如果没有则返回{@code null}
+         */
+        private static Field field(Class<?> beanClass, List<BeanPropertyDefinition> propertyDefinitions, String name) {
+            for (BeanPropertyDefinition propertyDefinition : propertyDefinitions) {
+                if (propertyDefinition.getName().equals(name)) {
+                    AnnotatedField annotatedField = propertyDefinition.getField();
+                    return annotatedField != null ? annotatedField.getAnnotated() : ReflectionUtils.findField(beanClass, propertyDefinition.getInternalName());
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 当所属对象正在被级联脱敏时，按照字段的{@link AnnotatedType}序列化属性值
+     */
+    static class DesensitizationBeanPropertyWriter extends BeanPropertyWriter {
+
+        private final AnnotatedType annotatedType;
+
+        DesensitizationBeanPropertyWriter(BeanPropertyWriter base, AnnotatedType annotatedType) {
+            super(base);
+            this.annotatedType = annotatedType;
+        }
+
+        @Override
+        public void serializeAsField(Object bean, JsonGenerator generator, SerializerProvider provider) throws Exception {
+            Object value;
+            if (provider.getAttribute(CASCADE_ATTRIBUTE) != bean || (value = get(bean)) == null) {
+                super.serializeAsField(bean, generator, provider);
+                return;
+            }
+            generator.writeFieldName(_name);
+            DesensitizationJacksonModule.serialize(value, annotatedType, generator, provider);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+/**
+ * 脱敏参数或返回值时超出了{@link DesensitizationLimits}中的限制
+ *
+ * @author zyc
+ */
+public class DesensitizationLimitExceededException extends RuntimeException {
+
+    private final DesensitizationLimits.Limit limit;
+
+    private final DesensitizationLimits.Policy policy;
+
+    public DesensitizationLimitExceededException(DesensitizationLimits.Limit limit, DesensitizationLimits.Policy policy) {
+        super("脱敏时超出了限制：" + limit, null, false, policy == DesensitizationLimits.Policy.FAIL);
+        this.limit = limit;
+        this.policy = policy;
+    }
+
+    public DesensitizationLimits.Limit getLimit() {
+        return limit;
+    }
+
+    public DesensitizationLimits.Policy getPolicy() {
+        return policy;
+    }
+}
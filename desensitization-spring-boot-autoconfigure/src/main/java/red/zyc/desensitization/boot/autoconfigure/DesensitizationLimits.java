@@ -0,0 +1,204 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.ResponseEntity;
+
+import java.lang.reflect.Array;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * 单次脱敏参数或返回值时的保护限制，防止脱敏超大的对象时长时间占用请求线程或者占用大量内存。
+ * 每一种限制都可以单独配置超出限制后的{@link Policy 处理策略}，小于0的最大值表示不限制。
+ *
+ * @author zyc
+ */
+public final class DesensitizationLimits {
+
+    /**
+     * 不做任何限制
+     */
+    public static final DesensitizationLimits NONE = new DesensitizationLimits(-1, Policy.FAIL, -1, Policy.FAIL, null, Policy.FAIL, null);
+
+    private final long maxElements;
+
+    private final Policy elementsPolicy;
+
+    private final int maxCascadeDepth;
+
+    private final Policy cascadeDepthPolicy;
+
+    private final long maxNanos;
+
+    private final Policy durationPolicy;
+
+    private final String placeholder;
+
+    /**
+     * @param maxElements        单次脱敏最多处理的元素个数
+     * @param elementsPolicy     超出最大元素个数后的处理策略
+     * @param maxCascadeDepth    最大级联脱敏深度
+     * @param cascadeDepthPolicy 超出最大级联脱敏深度后的处理策略
+     * @param maxDuration        一次方法调用中脱敏所有参数以及返回值的最大耗时，为{@code null}表示不限制
+     * @param durationPolicy     超出最大耗时后的处理策略
+     * @param placeholder        {@link Policy#MASK}策略下替换字符串类型对象的占位符
+     * @see #mask(Object)
+     */
+    public DesensitizationLimits(long maxElements, Policy elementsPolicy,
+                                 int maxCascadeDepth, Policy cascadeDepthPolicy,
+                                 Duration maxDuration, Policy durationPolicy,
+                                 String placeholder) {
+        this.maxElements = maxElements;
+        this.elementsPolicy = elementsPolicy;
+        this.maxCascadeDepth = maxCascadeDepth;
+        this.cascadeDepthPolicy = cascadeDepthPolicy;
+        this.maxNanos = maxDuration == null || maxDuration.isNegative() ? -1 : maxDuration.toNanos();
+        this.durationPolicy = durationPolicy;
+        this.placeholder = placeholder;
+    }
+
+    /**
+     * @return 是否配置了任何限制
+     */
+    boolean isLimited() {
+        return maxElements >= 0 || maxCascadeDepth >= 0 || maxNanos >= 0;
+    }
+
+    long maxElements() {
+        return maxElements;
+    }
+
+    int maxCascadeDepth() {
+        return maxCascadeDepth;
+    }
+
+    long maxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * {@link Policy#MASK}策略下替换整个对象：字符串被替换为占位符；集合、{@link Map}以及数组被替换为同类型的空对象，
+     * 无法构造同类型的空对象时使用相应接口的不可变空对象；{@link Optional}被替换为{@link Optional#empty()}；
+     * {@link ResponseEntity}以及{@link HttpEntity}保留响应头以及状态码，只替换其中的响应体；其它类型的对象被替换为{@code null}
+     *
+     * @param value 需要被替换的对象
+     * @return 替换后的对象
+     */
+    Object mask(Object value) {
+        if (value instanceof String) {
+            return placeholder;
+        }
+        if (value instanceof Optional) {
+            return Optional.empty();
+        }
+        if (value instanceof Collection<?> || value instanceof Map<?, ?>) {
+            if (Containers.instantiable(value.getClass())) {
+                return Containers.newInstance(value.getClass());
+            }
+            if (value instanceof SortedSet<?>) {
+                return Collections.emptySortedSet();
+            }
+            if (value instanceof Set<?>) {
+                return Set.of();
+            }
+            if (value instanceof SortedMap<?, ?>) {
+                return Collections.emptySortedMap();
+            }
+            if (value instanceof Map<?, ?>) {
+                return Map.of();
+            }
+            return value instanceof List<?> ? List.of() : null;
+        }
+        if (value != null && value.getClass().isArray()) {
+            return Array.newInstance(value.getClass().getComponentType(), 0);
+        }
+        if (value instanceof ResponseEntity<?> responseEntity) {
+            return new ResponseEntity<>(mask(responseEntity.getBody()), responseEntity.getHeaders(), responseEntity.getStatusCode());
+        }
+        if (value != null && value.getClass() == HttpEntity.class) {
+            HttpEntity<?> httpEntity = (HttpEntity<?>) value;
+            return new HttpEntity<>(mask(httpEntity.getBody()), httpEntity.getHeaders());
+        }
+        return null;
+    }
+
+    /**
+     * @param limit 限制
+     * @return 超出该限制后的处理策略
+     */
+    Policy policy(Limit limit) {
+        return switch (limit) {
+            case ELEMENTS -> elementsPolicy;
+            case CASCADE_DEPTH -> cascadeDepthPolicy;
+            case DURATION -> durationPolicy;
+        };
+    }
+
+    /**
+     * 限制的种类
+     */
+    public enum Limit {
+
+        /**
+         * 最大元素个数
+         */
+        ELEMENTS,
+
+        /**
+         * 最大级联脱敏深度
+         */
+        CASCADE_DEPTH,
+
+        /**
+         * 最大耗时
+         */
+        DURATION
+    }
+
+    /**
+     * 超出限制后的处理策略
+     */
+    public enum Policy {
+
+        /**
+         * 抛出{@link DesensitizationLimitExceededException}
+         */
+        FAIL,
+
+        /**
+         * 截断：集合、数组以及Map只保留限制以内的元素，超出限制的其它对象被脱敏为{@code null}。
+         * 对于级联深度限制，只有超出深度的对象会被脱敏为{@code null}。
+         */
+        TRUNCATE,
+
+        /**
+         * 将整个参数或返回值替换为占位符：字符串类型的对象会被替换为配置的占位符，集合、Map以及数组会被替换为空对象，
+         * {@link java.util.Optional}会被替换为空的{@link java.util.Optional}，{@link ResponseEntity}只有响应体会被替换，
+         * 其它类型的对象会被替换为{@code null}
+         */
+        MASK
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 在构建期预先计算的需要脱敏的方法。{@link DesensitizationBeanFactoryInitializationAotProcessor}会在Spring AOT处理时
+ * 分析所有bean的类型，将其中参数或返回值需要被脱敏的方法写入{@value #LOCATION}，运行时{@link DesensitizationPointcut}
+ * 直接通过方法签名查找该文件中的结果，不再通过反射分析方法上的注解。对于构建期没有分析过的类仍然在运行时进行分析。
+ *
+ * @author zyc
+ */
+final class DesensitizationMethods {
+
+    /**
+     * 预先计算的结果所在的位置，每一行的键是类名，值是该类中需要被脱敏的方法签名，多个方法签名以{@value #SEPARATOR}分隔
+     */
+    static final String LOCATION = "META-INF/desensitization/methods.properties";
+
+    static final String SEPARATOR = ";";
+
+    /**
+     * 类名与该类中需要被脱敏的方法签名的映射
+     */
+    private final Map<String, Set<String>> methods;
+
+    private DesensitizationMethods(Map<String, Set<String>> methods) {
+        this.methods = methods;
+    }
+
+    /**
+     * 加载构建期预先计算的结果
+     *
+     * @param classLoader 类加载器
+     * @return 预先计算的结果，如果不存在则返回{@code null}
+     */
+    static DesensitizationMethods load(ClassLoader classLoader) {
+        Resource resource = new ClassPathResource(LOCATION, classLoader);
+        if (!resource.exists()) {
+            return null;
+        }
+        try {
+            Properties properties = PropertiesLoaderUtils.loadProperties(resource);
+            return new DesensitizationMethods(properties.stringPropertyNames().stream()
+                    .collect(Collectors.toUnmodifiableMap(Function.identity(), name -> Arrays.stream(properties.getProperty(name).split(SEPARATOR))
+                            .filter(signature -> !signature.isEmpty())
+                            .collect(Collectors.toUnmodifiableSet()))));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 判断方法的参数或者返回值是否需要被脱敏，构建期没有分析过该方法所在的类时在运行时进行分析
+     *
+     * @param method 方法
+     * @return 该方法的参数或者返回值是否需要被脱敏
+     */
+    boolean needDesensitized(Method method) {
+        Set<String> signatures = methods.get(method.getDeclaringClass().getName());
+        return signatures != null ? signatures.contains(signature(method)) : MethodDesensitizationInterceptor.needDesensitized(method);
+    }
+
+    /**
+     * @param method 方法
+     * @return 方法签名，例如{@code find(java.lang.String,int[])}
+     */
+    static String signature(Method method) {
+        return Arrays.stream(method.getParameterTypes()).map(Class::getTypeName).collect(Collectors.joining(",", method.getName() + "(", ")"));
+    }
+}
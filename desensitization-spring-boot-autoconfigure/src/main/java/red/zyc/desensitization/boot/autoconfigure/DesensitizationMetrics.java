@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationLimits.Limit;
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationLimits.Policy;
+
+import java.lang.reflect.Method;
+
+/**
+ * 脱敏指标记录器，{@link MethodDesensitizationInterceptor}会在每次被采样的方法调用中
+ * 记录参数以及返回值的脱敏耗时、处理的元素个数和到达的级联深度。超出{@link DesensitizationLimits}中的限制时，
+ * 无论本次方法调用是否被采样都会被记录。
+ *
+ * @author zyc
+ */
+public interface DesensitizationMetrics {
+
+    /**
+     * 不记录任何指标
+     */
+    DesensitizationMetrics NONE = new DesensitizationMetrics() {
+
+        @Override
+        public boolean sample() {
+            return false;
+        }
+
+        @Override
+        public void record(Method method, Phase phase, Class<?> parser, long nanos, long elements, int depth) {
+        }
+
+        @Override
+        public void limitExceeded(Method method, Phase phase, Limit limit, Policy policy) {
+        }
+    };
+
+    /**
+     * @return 本次方法调用是否需要记录指标
+     */
+    boolean sample();
+
+    /**
+     * 记录一次脱敏的指标
+     *
+     * @param method   被拦截的方法
+     * @param phase    脱敏的是参数还是返回值
+     * @param parser   实际处理该对象的自定义类型解析器，如果该对象由内置的类型解析器处理则为{@code null}
+     * @param nanos    脱敏耗时，单位纳秒
+     * @param elements 处理的元素个数
+     * @param depth    到达的最大级联深度
+     */
+    void record(Method method, Phase phase, Class<?> parser, long nanos, long elements, int depth);
+
+    /**
+     * 记录一次超出限制
+     *
+     * @param method 被拦截的方法
+     * @param phase  脱敏的是参数还是返回值
+     * @param limit  超出的限制
+     * @param policy 超出限制后的处理策略
+     */
+    void limitExceeded(Method method, Phase phase, Limit limit, Policy policy);
+
+    /**
+     * 脱敏的阶段
+     */
+    enum Phase {
+
+        /**
+         * 方法参数
+         */
+        ARGUMENT,
+
+        /**
+         * 方法返回值
+         */
+        RETURN_VALUE
+    }
+}
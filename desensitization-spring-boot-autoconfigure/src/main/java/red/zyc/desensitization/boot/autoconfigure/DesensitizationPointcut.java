@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.function.SingletonSupplier;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 只匹配参数或返回值需要被脱敏的方法的切点。该切点在应用启动创建代理时通过
+ * {@link MethodDesensitizationInterceptor#needDesensitized(Method)}对方法签名进行分析，
+ * 那些没有任何方法需要脱敏的bean将不会被代理，其方法调用也不会经过{@link MethodDesensitizationInterceptor}。
+ * 如果存在{@link DesensitizationMethods 构建期预先计算的结果}，则直接通过方法签名查找，不再通过反射分析。
+ * <p>
+ * 该切点同时提供了一个按类缓存结果的类过滤器：只有位于指定包及其子包下并且存在需要脱敏的方法的类才会被匹配，
+ * 因此不需要脱敏的bean在创建代理时只会被分析一次，不会再逐个方法地进行匹配。
+ * <p>
+ * 包以及构建期预先计算的结果都是在第一次匹配时才会被线程安全地解析一次，所以创建该切点不会有任何额外的开销。
+ *
+ * @author zyc
+ */
+public class DesensitizationPointcut extends StaticMethodMatcherPointcut {
+
+    private final Supplier<DesensitizationMethods> desensitizationMethods;
+
+    /**
+     * 类是否存在需要脱敏的方法的缓存
+     */
+    private final Map<Class<?>, Boolean> candidates = new ConcurrentReferenceHashMap<>();
+
+    public DesensitizationPointcut() {
+        this(List.of());
+    }
+
+    /**
+     * @param packages 需要脱敏的类所在的包，会同时匹配其子包，为空时匹配所有包
+     */
+    public DesensitizationPointcut(List<String> packages) {
+        this(() -> packages, () -> null);
+    }
+
+    /**
+     * @param packages               需要脱敏的类所在的包，只会在第一次匹配时获取一次
+     * @param desensitizationMethods 构建期预先计算的结果，只会在第一次匹配时获取一次，不存在时为{@code null}
+     */
+    DesensitizationPointcut(Supplier<List<String>> packages, Supplier<DesensitizationMethods> desensitizationMethods) {
+        this.desensitizationMethods = SingletonSupplier.of(desensitizationMethods);
+        Supplier<List<String>> prefixes = SingletonSupplier.of(() -> packages.get().stream().map(name -> name.endsWith(".") ? name : name + ".").toList());
+        setClassFilter(clazz -> candidates.computeIfAbsent(ClassUtils.getUserClass(clazz), type -> inPackages(type, prefixes.get()) && hasDesensitizedMethod(type)));
+    }
+
+    @Override
+    public boolean matches(Method method, Class<?> targetClass) {
+        if (needDesensitized(method)) {
+            return true;
+        }
+        Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+        return specificMethod != method && needDesensitized(specificMethod);
+    }
+
+    private static boolean inPackages(Class<?> type, List<String> prefixes) {
+        return prefixes.isEmpty() || prefixes.stream().anyMatch(type.getName()::startsWith);
+    }
+
+    /**
+     * @return 类及其父类和接口中是否存在需要脱敏的方法
+     */
+    private boolean hasDesensitizedMethod(Class<?> type) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        types.add(type);
+        types.addAll(ClassUtils.getAllInterfacesForClassAsSet(type));
+        return types.stream()
+                .flatMap(candidate -> Arrays.stream(ReflectionUtils.getAllDeclaredMethods(candidate)))
+                .anyMatch(this::needDesensitized);
+    }
+
+    private boolean needDesensitized(Method method) {
+        DesensitizationMethods methods = desensitizationMethods.get();
+        return methods != null ? methods.needDesensitized(method) : MethodDesensitizationInterceptor.needDesensitized(method);
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * 决定本次调用是否需要脱敏的策略，例如根据请求属性或者当前用户的角色允许内部的管理员或者批处理调用方获取原始数据，
+ * 从而不需要为其单独提供一套接口。
+ * <p>
+ * {@link MethodDesensitizationInterceptor}在每次调用参数或返回值需要脱敏的方法时只会调用一次该策略，
+ * 如果该策略不允许脱敏则直接调用原方法，不会进行任何类型分析。由于每次调用都会执行该策略，实现类应当避免分配对象。
+ *
+ * @author zyc
+ */
+@FunctionalInterface
+public interface DesensitizationPolicy {
+
+    /**
+     * 总是脱敏
+     */
+    DesensitizationPolicy ALWAYS = invocation -> true;
+
+    /**
+     * @param invocation 本次方法调用
+     * @return 本次调用的参数以及返回值是否需要脱敏
+     */
+    boolean desensitize(MethodInvocation invocation);
+}
@@ -18,9 +18,17 @@ package red.zyc.desensitization.boot.autoconfigure;
 
 import org.aspectj.weaver.tools.PointcutPrimitive;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationLimits.Policy;
+
+import java.lang.annotation.Annotation;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * 脱敏配置参数，其中{@link #pointcutExpression 切点表达式}只支持以下几种AspectJ切点表达式原语：
+ * 脱敏配置参数。默认情况下只会拦截{@link #packages 指定包}及其子包下参数或返回值需要被脱敏的方法，不需要AspectJ；
+ * 只有显式配置了{@link #pointcutExpression 切点表达式}时才会通过AspectJ匹配方法，此时需要添加aspectjweaver依赖，
+ * 并且切点表达式只支持以下几种AspectJ切点表达式原语：
  * <ul>
  *     <li>{@link PointcutPrimitive#EXECUTION}</li>
  *     <li>{@link PointcutPrimitive#ARGS}</li>
@@ -40,10 +48,59 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public class DesensitizationProperties {
 
     /**
-     * 切点表达式，默认值为当前spring-boot工程启动类所在包及其子包下的所有方法
+     * 切点表达式，配置后将代替packages通过AspectJ匹配方法，需要添加aspectjweaver依赖。
+     * 在该表达式匹配的方法中只有参数或返回值需要被脱敏的方法才会被拦截。
      */
     private String pointcutExpression;
 
+    /**
+     * 需要脱敏的类所在的包，会同时匹配其子包，默认为当前spring-boot工程启动类所在的包
+     */
+    private List<String> packages = new ArrayList<>();
+
+    /**
+     * 是否对声明类型为List、Collection、Iterable或者键不需要脱敏的Map的参数进行延迟脱敏，
+     * 开启后这些参数不会被复制，而是被替换成在元素被访问时才进行脱敏的只读视图
+     */
+    private boolean lazyArguments = false;
+
+    /**
+     * 是否默认原地脱敏所有方法的返回值，开启后返回值中级联脱敏的对象以及可变的集合、Map和数组会被直接修改而不是复制，方法参数总是被复制。
+     * 原地脱敏会修改方法返回的对象本身，只适用于每次调用单独构造并且不会被共享的对象，不适用于缓存中的对象或者JPA实体等共享的对象，
+     * 因此推荐通过{@link DesensitizeInPlace}注解只对部分方法或者类开启
+     */
+    private boolean inPlace = false;
+
+    /**
+     * 通过配置声明的响应实体，这些响应实体中的实际数据会被自动脱敏，不需要为其编写类型解析器
+     */
+    private List<Envelope> envelopes = new ArrayList<>();
+
+    /**
+     * 脱敏指标配置
+     */
+    private final Metrics metrics = new Metrics();
+
+    /**
+     * 并行脱敏配置
+     */
+    private final Parallel parallel = new Parallel();
+
+    /**
+     * Jackson序列化时脱敏配置
+     */
+    private final Jackson jackson = new Jackson();
+
+    /**
+     * 脱敏参数或返回值时的保护限制
+     */
+    private final Limits limits = new Limits();
+
+    /**
+     * 脱敏结果缓存配置
+     */
+    private final Cache cache = new Cache();
+
     public String getPointcutExpression() {
         return pointcutExpression;
     }
@@ -51,4 +108,345 @@ public class DesensitizationProperties {
     public void setPointcutExpression(String pointcutExpression) {
         this.pointcutExpression = pointcutExpression;
     }
+
+    public List<String> getPackages() {
+        return packages;
+    }
+
+    public void setPackages(List<String> packages) {
+        this.packages = packages;
+    }
+
+    public boolean isLazyArguments() {
+        return lazyArguments;
+    }
+
+    public void setLazyArguments(boolean lazyArguments) {
+        this.lazyArguments = lazyArguments;
+    }
+
+    public boolean isInPlace() {
+        return inPlace;
+    }
+
+    public void setInPlace(boolean inPlace) {
+        this.inPlace = inPlace;
+    }
+
+    public List<Envelope> getEnvelopes() {
+        return envelopes;
+    }
+
+    public void setEnvelopes(List<Envelope> envelopes) {
+        this.envelopes = envelopes;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public Parallel getParallel() {
+        return parallel;
+    }
+
+    public Jackson getJackson() {
+        return jackson;
+    }
+
+    public Limits getLimits() {
+        return limits;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    /**
+     * 响应实体配置
+     */
+    public static class Envelope {
+
+        /**
+         * 响应实体的类型，必须拥有公共无参构造器
+         */
+        private Class<?> type;
+
+        /**
+         * 实际数据的属性名称，该属性必须拥有公共getter以及setter方法，并且其类型必须是响应实体的泛型参数。
+         * 只支持响应实体自身的单个属性，不支持{@code result.data}这样的嵌套属性路径
+         */
+        private String payload;
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public void setType(Class<?> type) {
+            this.type = type;
+        }
+
+        public String getPayload() {
+            return payload;
+        }
+
+        public void setPayload(String payload) {
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * 脱敏指标配置，只有在spring上下文中存在{@code MeterRegistry}时才会生效
+     */
+    public static class Metrics {
+
+        /**
+         * 是否记录脱敏指标
+         */
+        private boolean enabled = true;
+
+        /**
+         * 方法调用的采样率，取值范围为0到1。被采样的调用需要额外计时并更新指标，因此默认只采样1%的调用，
+         * 超出限制的次数则不受采样率影响
+         */
+        private double sampleRate = 0.01;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+    }
+
+    /**
+     * 并行脱敏配置，开启后元素个数达到阈值的集合、数组以及Map会被切分成若干段并行脱敏
+     */
+    public static class Parallel {
+
+        /**
+         * 是否开启并行脱敏
+         */
+        private boolean enabled = false;
+
+        /**
+         * 并行脱敏的元素个数阈值
+         */
+        private int threshold = 10000;
+
+        /**
+         * 并行度，即元素被切分成的段数以及ForkJoinPool的线程数
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * 是否使用虚拟线程代替ForkJoinPool执行并行脱敏任务
+         */
+        private boolean virtualThreads = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(int threshold) {
+            this.threshold = threshold;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public void setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+        }
+    }
+
+    /**
+     * Jackson序列化时脱敏配置，开启后spring-mvc处理器方法的返回值会在Jackson序列化的同时进行脱敏，
+     * 而不是先构造一个脱敏后的新对象再进行序列化
+     */
+    public static class Jackson {
+
+        /**
+         * 是否在Jackson序列化时脱敏
+         */
+        private boolean enabled = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    /**
+     * 脱敏结果缓存配置，开启后相同注解脱敏相同字符串的结果会被缓存起来直接复用，适用于大量重复的邮箱、手机号等数据。
+     * 需要添加caffeine依赖
+     */
+    public static class Cache {
+
+        /**
+         * 是否缓存脱敏结果
+         */
+        private boolean enabled = false;
+
+        /**
+         * 最多缓存的脱敏结果个数
+         */
+        private long maximumSize = 10000;
+
+        /**
+         * 脱敏结果被缓存的时长，默认一直缓存直到被淘汰
+         */
+        private Duration timeToLive;
+
+        /**
+         * 允许缓存脱敏结果的注解类型，默认所有脱敏注解的结果都会被缓存
+         */
+        private List<Class<? extends Annotation>> annotations = new ArrayList<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public List<Class<? extends Annotation>> getAnnotations() {
+            return annotations;
+        }
+
+        public void setAnnotations(List<Class<? extends Annotation>> annotations) {
+            this.annotations = annotations;
+        }
+    }
+
+    /**
+     * 脱敏参数或返回值时的保护限制，防止脱敏超大的对象时长时间占用请求线程或者占用大量内存，默认不做任何限制
+     */
+    public static class Limits {
+
+        /**
+         * 单次脱敏参数或返回值最多处理的元素个数
+         */
+        private final Limit<Long> elements = new Limit<>();
+
+        /**
+         * 最大级联脱敏深度
+         */
+        private final Limit<Integer> cascadeDepth = new Limit<>();
+
+        /**
+         * 一次方法调用中脱敏所有参数以及返回值的最大耗时
+         */
+        private final Limit<Duration> duration = new Limit<>();
+
+        /**
+         * 处理策略为mask时替换字符串类型对象的占位符，集合、Map以及数组会被替换为空对象，其它类型的对象会被替换为null
+         */
+        private String placeholder = "******";
+
+        public Limit<Long> getElements() {
+            return elements;
+        }
+
+        public Limit<Integer> getCascadeDepth() {
+            return cascadeDepth;
+        }
+
+        public Limit<Duration> getDuration() {
+            return duration;
+        }
+
+        public String getPlaceholder() {
+            return placeholder;
+        }
+
+        public void setPlaceholder(String placeholder) {
+            this.placeholder = placeholder;
+        }
+
+        DesensitizationLimits toDesensitizationLimits() {
+            return new DesensitizationLimits(elements.getMax() == null ? -1 : elements.getMax(), elements.getPolicy(),
+                    cascadeDepth.getMax() == null ? -1 : cascadeDepth.getMax(), cascadeDepth.getPolicy(),
+                    duration.getMax(), duration.getPolicy(), placeholder);
+        }
+    }
+
+    /**
+     * 单个限制
+     *
+     * @param <T> 限制的最大值的类型
+     */
+    public static class Limit<T> {
+
+        /**
+         * 最大值，为空时表示不限制
+         */
+        private T max;
+
+        /**
+         * 超出限制后的处理策略
+         */
+        private Policy policy = Policy.FAIL;
+
+        public T getMax() {
+            return max;
+        }
+
+        public void setMax(T max) {
+            this.max = max;
+        }
+
+        public Policy getPolicy() {
+            return policy;
+        }
+
+        public void setPolicy(Policy policy) {
+            this.policy = policy;
+        }
+    }
 }
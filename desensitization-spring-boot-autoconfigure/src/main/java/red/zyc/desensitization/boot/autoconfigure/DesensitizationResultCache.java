@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import red.zyc.parser.handler.Parse;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedType;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 脱敏结果缓存，以注解实例以及被脱敏的字符串作为键缓存脱敏后的字符串。脱敏是幂等的纯函数，所以相同的注解脱敏相同的字符串总能复用之前的结果，
+ * 省去了重复的字符串分配以及正则匹配。缓存基于Caffeine的W-TinyLFU淘汰策略，容量有上限。
+ * <p>
+ * 只有被唯一一个脱敏注解标记的字符串才会被缓存，注解的属性值相同即视为相同的注解。
+ *
+ * @author zyc
+ * @see CascadeTypeParser
+ */
+public final class DesensitizationResultCache {
+
+    /**
+     * 注解类型是否是脱敏注解
+     */
+    private static final ClassValue<Boolean> SENSITIVE_ANNOTATIONS = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return type.isAnnotationPresent(Parse.class);
+        }
+    };
+
+    private final Cache<Key, String> cache;
+
+    /**
+     * 允许缓存脱敏结果的注解类型，为空则允许所有脱敏注解
+     */
+    private final Set<Class<? extends Annotation>> annotationTypes;
+
+    /**
+     * @param maximumSize     最多缓存的脱敏结果个数
+     * @param timeToLive      脱敏结果被缓存的时长，为{@code null}则一直缓存直到被淘汰
+     * @param annotationTypes 允许缓存脱敏结果的注解类型，为空则允许所有脱敏注解
+     */
+    public DesensitizationResultCache(long maximumSize, Duration timeToLive, Collection<Class<? extends Annotation>> annotationTypes) {
+        Caffeine<Object, Object> caffeine = Caffeine.newBuilder().maximumSize(maximumSize).recordStats();
+        if (timeToLive != null) {
+            caffeine.expireAfterWrite(timeToLive);
+        }
+        this.cache = caffeine.build();
+        this.annotationTypes = Set.copyOf(annotationTypes);
+    }
+
+    /**
+     * @param value         对象
+     * @param annotatedType 对象的{@link AnnotatedType}
+     * @return 该对象的脱敏结果是否可以被缓存
+     */
+    boolean cacheable(Object value, AnnotatedType annotatedType) {
+        if (!(value instanceof String)) {
+            return false;
+        }
+        Annotation[] annotations = annotatedType.getDeclaredAnnotations();
+        if (annotations.length != 1) {
+            return false;
+        }
+        Class<? extends Annotation> annotationType = annotations[0].annotationType();
+        return SENSITIVE_ANNOTATIONS.get(annotationType) && (annotationTypes.isEmpty() || annotationTypes.contains(annotationType));
+    }
+
+    /**
+     * 获取字符串的脱敏结果，如果没有被缓存则通过{@code desensitizer}脱敏之后再缓存。
+     * 并发时同一个字符串可能会被重复脱敏，由于脱敏是幂等的所以这不会影响结果，同时也避免了在缓存内部递归计算。
+     *
+     * @param value         字符串
+     * @param annotatedType 字符串的{@link AnnotatedType}
+     * @param desensitizer  没有命中缓存时的脱敏逻辑
+     * @return 脱敏后的字符串
+     */
+    Object get(Object value, AnnotatedType annotatedType, Supplier<Object> desensitizer) {
+        Key key = new Key(annotatedType.getDeclaredAnnotations()[0], (String) value);
+        String desensitized = cache.getIfPresent(key);
+        if (desensitized == null) {
+            Object result = desensitizer.get();
+            if (!(result instanceof String string)) {
+                return result;
+            }
+            cache.put(key, desensitized = string);
+        }
+        return desensitized;
+    }
+
+    /**
+     * 记录缓存的命中次数、未命中次数、淘汰次数以及命中率
+     *
+     * @param meterRegistry {@link MeterRegistry}
+     */
+    void bindTo(MeterRegistry meterRegistry) {
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "desensitization");
+        Gauge.builder("desensitization.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("脱敏结果缓存的命中率")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param annotation 脱敏注解
+     * @param value      被脱敏的字符串
+     */
+    private record Key(Annotation annotation, String value) {
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 脱敏自动配置在原生镜像中所需的运行时提示
+ *
+ * @author zyc
+ */
+class DesensitizationRuntimeHints implements RuntimeHintsRegistrar {
+
+    /**
+     * 并行脱敏以及截断时会通过无参构造器构造与原对象类型相同的集合和Map
+     *
+     * @see Containers
+     */
+    private static final List<Class<?>> CONTAINERS = List.of(ArrayList.class, LinkedList.class, CopyOnWriteArrayList.class, ArrayDeque.class,
+            HashSet.class, LinkedHashSet.class, TreeSet.class, HashMap.class, LinkedHashMap.class, TreeMap.class, ConcurrentHashMap.class);
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.resources().registerPattern("META-INF/services/" + GeneratedCascadeTypeParser.class.getName());
+        CONTAINERS.forEach(type -> hints.reflection().registerType(type, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS));
+        // DeferredResultTypeParser以及WebAsyncTaskTypeParser通过反射读取原对象的超时时间、线程池以及生命周期回调
+        hints.reflection().registerType(DeferredResult.class, MemberCategory.INVOKE_DECLARED_METHODS);
+        hints.reflection().registerType(WebAsyncTask.class, MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_DECLARED_METHODS);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 开启返回值的原地脱敏，原地脱敏时{@link red.zyc.parser.type.Cascade}对象以及可变的集合、Map和数组不会被复制，
+ * 而是直接修改其中需要脱敏的字段或元素，从而减少脱敏大对象时的内存分配。
+ * <ul>
+ *     <li>标注在方法上时，该方法的返回值会被原地脱敏</li>
+ *     <li>标注在类上时，该类中所有方法的返回值都会被原地脱敏</li>
+ * </ul>
+ * 方法参数属于调用方，因此总是被复制，不会被原地脱敏。
+ * <p>
+ * 注意：原地脱敏会修改方法返回的对象本身，所有持有该对象引用的地方都会看到脱敏后的数据。因此只适用于每次调用单独构造并且不会被共享的对象，
+ * 不要用于返回缓存中的对象、单例中的对象或者JPA实体等被持久化上下文管理的对象，对于后者，脱敏后的数据甚至可能在事务提交时被写回数据库。
+ * <p>
+ * 拥有需要脱敏的final字段的对象（例如record）、不可变的集合以及不允许值为{@code null}的Map无法被原地脱敏，仍然会被复制。
+ *
+ * @author zyc
+ * @see InPlaceDesensitization
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface DesensitizeInPlace {
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+
+import java.io.IOException;
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link DesensitizedResponseBodyEmitter}以及{@link DesensitizedSseEmitter}共用的暂存以及脱敏逻辑。
+ * 元素的{@link AnnotatedType}确定之前发送的元素以及完成信号会被暂存起来，确定之后才会被脱敏并交给emitter，
+ * 所有操作都在emitter的锁内进行。
+ *
+ * @author zyc
+ * @see DesensitizedEmitterTypeParser
+ */
+final class DesensitizedEmitterSupport {
+
+    /**
+     * 持有该对象的emitter，同时也是所有操作的锁
+     */
+    private final ResponseBodyEmitter emitter;
+
+    private final Target target;
+
+    private AnnotatedType elementType;
+
+    private DesensitizationContext.Settings settings;
+
+    private boolean bound;
+
+    /**
+     * 是否被显式指定为原样发送
+     */
+    private boolean unmasked;
+
+    /**
+     * 元素的{@link AnnotatedType}确定之前发送的元素
+     */
+    private final List<Set<DataWithMediaType>> pending = new ArrayList<>();
+
+    private boolean completed;
+
+    private Throwable failure;
+
+    DesensitizedEmitterSupport(ResponseBodyEmitter emitter, Target target) {
+        this.emitter = emitter;
+        this.target = target;
+    }
+
+    /**
+     * @param value 任意对象
+     * @return 对象是{@link DesensitizedResponseBodyEmitter}或者{@link DesensitizedSseEmitter}时返回其{@link DesensitizedEmitterSupport}，否则返回{@code null}
+     */
+    static DesensitizedEmitterSupport of(Object value) {
+        if (value instanceof DesensitizedResponseBodyEmitter<?> emitter) {
+            return emitter.support;
+        }
+        if (value instanceof DesensitizedSseEmitter<?> emitter) {
+            return emitter.support;
+        }
+        return null;
+    }
+
+    void send(Set<DataWithMediaType> items) throws IOException {
+        synchronized (emitter) {
+            if (!bound) {
+                pending.add(items);
+                return;
+            }
+            target.send(desensitize(items));
+        }
+    }
+
+    void complete() {
+        synchronized (emitter) {
+            if (!bound) {
+                completed = true;
+                return;
+            }
+            target.complete();
+        }
+    }
+
+    void completeWithError(Throwable ex) {
+        synchronized (emitter) {
+            if (!bound) {
+                failure = ex;
+                return;
+            }
+            target.completeWithError(ex);
+        }
+    }
+
+    /**
+     * 指定元素的{@link AnnotatedType}，在此之前发送的元素会被暂存起来，直到指定之后才会被脱敏并发送。
+     * 每个元素都在一个以捕获的上下文设置创建的新上下文中脱敏。只有第一次指定（包括{@link #unmasked()}）才会生效。
+     *
+     * @param elementType 元素的{@link AnnotatedType}
+     * @param settings    方法返回值被脱敏时捕获的上下文设置
+     */
+    void desensitizeWith(AnnotatedType elementType, DesensitizationContext.Settings settings) {
+        bind(elementType, settings, false);
+    }
+
+    /**
+     * 显式指定元素原样发送，只有{@link DesensitizationPolicy}允许本次调用获取原始数据时才会被调用。
+     * 只有第一次指定（包括{@link #desensitizeWith(AnnotatedType, DesensitizationContext.Settings)}）才会生效。
+     */
+    void unmasked() {
+        bind(null, null, true);
+    }
+
+    /**
+     * 响应开始时如果元素的{@link AnnotatedType}仍然没有确定，说明方法没有被拦截（例如自调用、final方法、不在脱敏范围内的类），
+     * 此时从当前请求的处理器方法的返回值类型中解析元素的{@link AnnotatedType}，无法解析时拒绝发送任何元素
+     *
+     * @throws IllegalStateException 无法确定元素的{@link AnnotatedType}
+     */
+    void bindToHandler() {
+        synchronized (emitter) {
+            if (!bound) {
+                bind(handlerElementType(emitter.getClass()), DesensitizationContext.Settings.DETACHED, false);
+            }
+        }
+    }
+
+    private void bind(AnnotatedType elementType, DesensitizationContext.Settings settings, boolean unmasked) {
+        synchronized (emitter) {
+            if (bound) {
+                return;
+            }
+            this.elementType = elementType;
+            this.settings = settings;
+            this.unmasked = unmasked;
+            this.bound = true;
+            try {
+                for (Set<DataWithMediaType> items : pending) {
+                    target.send(desensitize(items));
+                }
+            } catch (IOException e) {
+                target.completeWithError(e);
+                return;
+            } finally {
+                pending.clear();
+            }
+            if (failure != null) {
+                target.completeWithError(failure);
+            } else if (completed) {
+                target.complete();
+            }
+        }
+    }
+
+    /**
+     * 从当前请求的处理器方法的返回值类型中解析emitter元素的{@link AnnotatedType}
+     *
+     * @param emitterType emitter的类型
+     * @return emitter元素的{@link AnnotatedType}
+     * @throws IllegalStateException 当前请求没有处理器方法，或者处理器方法的返回值类型没有声明emitter元素的类型
+     */
+    static AnnotatedType handlerElementType(Class<?> emitterType) {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        Object handler = requestAttributes == null ? null : requestAttributes.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (handler instanceof HandlerMethod handlerMethod
+                && handlerMethod.getMethod().getAnnotatedReturnType() instanceof AnnotatedParameterizedType annotatedParameterizedType
+                && ((ParameterizedType) annotatedParameterizedType.getType()).getRawType() instanceof Class<?> rawType
+                && rawType.isAssignableFrom(emitterType)) {
+            return annotatedParameterizedType.getAnnotatedActualTypeArguments()[0];
+        }
+        throw new IllegalStateException("无法确定" + emitterType.getName() + "的元素类型，为了避免发送未脱敏的元素，请在处理器方法的返回值类型中声明元素类型");
+    }
+
+    private Set<DataWithMediaType> desensitize(Set<DataWithMediaType> items) {
+        if (unmasked) {
+            return items;
+        }
+        Set<DataWithMediaType> desensitized = new LinkedHashSet<>(items.size());
+        DataWithMediaType previous = null;
+        for (DataWithMediaType item : items) {
+            desensitized.add(target.isElement(previous, item) ? new DataWithMediaType(settings.parse(item.getData(), elementType), item.getMediaType()) : item);
+            previous = item;
+        }
+        return desensitized;
+    }
+
+    /**
+     * 脱敏之后的元素以及完成信号的去向，通常是emitter父类的对应方法
+     */
+    interface Target {
+
+        void send(Set<DataWithMediaType> items) throws IOException;
+
+        void complete();
+
+        void completeWithError(Throwable ex);
+
+        /**
+         * @param previous 上一个组成部分，当前是第一个时为{@code null}
+         * @param item     当前组成部分
+         * @return 当前组成部分是否是需要脱敏的元素
+         */
+        default boolean isElement(DataWithMediaType previous, DataWithMediaType item) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+
+/**
+ * 用来解析返回值类型为{@link DesensitizedResponseBodyEmitter}以及{@link DesensitizedSseEmitter}的类型解析器。
+ * 该解析器不会构造新的emitter，而是将泛型参数的{@link AnnotatedType}交给原emitter，之后发送的每个元素都会在发送时被脱敏。
+ *
+ * @author zyc
+ */
+public class DesensitizedEmitterTypeParser implements TypeParser<ResponseBodyEmitter, AnnotatedParameterizedType> {
+
+    @Override
+    public ResponseBodyEmitter parse(ResponseBodyEmitter emitter, AnnotatedParameterizedType annotatedParameterizedType) {
+        DesensitizedEmitterSupport.of(emitter).desensitizeWith(annotatedParameterizedType.getAnnotatedActualTypeArguments()[0], DesensitizationContext.capture());
+        return emitter;
+    }
+
+    @Override
+    public boolean support(Object value, AnnotatedType annotatedType) {
+        return DesensitizedEmitterSupport.of(value) != null && annotatedType instanceof AnnotatedParameterizedType;
+    }
+
+    @Override
+    public int order() {
+        return TypeParserOrders.CONTAINER;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.lang.reflect.AnnotatedType;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 在发送每个元素时才对其进行脱敏的{@link ResponseBodyEmitter}，元素的脱敏注解标注在泛型参数上，例如：
+ * <pre>
+ * public DesensitizedResponseBodyEmitter&lt;&#64;Cascade Person&gt; persons() {...}
+ * </pre>
+ * 元素不会被缓冲，发送时立即脱敏并写出。方法返回之前发送的元素会被暂存起来，直到{@link DesensitizedEmitterTypeParser}
+ * 从方法返回值类型中得到元素的{@link AnnotatedType}之后才会被脱敏并发送，这与spring在处理返回值之前暂存元素的行为一致。
+ * 如果{@link DesensitizationPolicy}允许本次调用获取原始数据，那么元素会被显式指定为原样发送；
+ * 如果方法没有被拦截，那么元素的{@link AnnotatedType}会在响应开始时从处理器方法的返回值类型中解析，无法解析时响应失败，元素永远不会被意外地原样发送。
+ *
+ * @param <T> 元素类型
+ * @author zyc
+ */
+public class DesensitizedResponseBodyEmitter<T> extends ResponseBodyEmitter {
+
+    final DesensitizedEmitterSupport support = new DesensitizedEmitterSupport(this, new DesensitizedEmitterSupport.Target() {
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            DesensitizedResponseBodyEmitter.super.send(items);
+        }
+
+        @Override
+        public void complete() {
+            DesensitizedResponseBodyEmitter.super.complete();
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            DesensitizedResponseBodyEmitter.super.completeWithError(ex);
+        }
+    });
+
+    public DesensitizedResponseBodyEmitter() {
+    }
+
+    public DesensitizedResponseBodyEmitter(Long timeout) {
+        super(timeout);
+    }
+
+    @Override
+    public void send(Object object, MediaType mediaType) throws IOException {
+        send(Collections.singleton(new DataWithMediaType(object, mediaType)));
+    }
+
+    @Override
+    public void send(Set<DataWithMediaType> items) throws IOException {
+        support.send(items);
+    }
+
+    @Override
+    public void complete() {
+        support.complete();
+    }
+
+    @Override
+    public void completeWithError(Throwable ex) {
+        support.completeWithError(ex);
+    }
+
+    /**
+     * 响应开始时如果元素的类型仍然没有确定，则从处理器方法的返回值类型中解析，无法解析时响应失败
+     *
+     * @param outputMessage 响应
+     * @throws IllegalStateException 无法确定元素的类型
+     * @see DesensitizedEmitterSupport#bindToHandler()
+     */
+    @Override
+    protected void extendResponse(ServerHttpResponse outputMessage) {
+        support.bindToHandler();
+        super.extendResponse(outputMessage);
+    }
+}
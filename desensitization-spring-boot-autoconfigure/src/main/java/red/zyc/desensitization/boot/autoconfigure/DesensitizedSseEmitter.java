@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * 在发送每个事件时才对事件数据进行脱敏的{@link SseEmitter}，事件数据的脱敏注解标注在泛型参数上，例如：
+ * <pre>
+ * public DesensitizedSseEmitter&lt;&#64;Cascade Person&gt; persons() {...}
+ * </pre>
+ * 只有通过{@link SseEventBuilder#data(Object)}添加的事件数据会被脱敏，事件的id、名称以及注释等保持不变。
+ * 方法返回之前发送的事件的处理方式与{@link DesensitizedResponseBodyEmitter}相同。
+ *
+ * @param <T> 事件数据类型
+ * @author zyc
+ */
+public class DesensitizedSseEmitter<T> extends SseEmitter {
+
+    /**
+     * {@link SseEventBuilder}在每个事件数据之前添加的文本
+     */
+    private static final String DATA_PREFIX = "data:";
+
+    final DesensitizedEmitterSupport support = new DesensitizedEmitterSupport(this, new DesensitizedEmitterSupport.Target() {
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            DesensitizedSseEmitter.super.send(items);
+        }
+
+        @Override
+        public void complete() {
+            DesensitizedSseEmitter.super.complete();
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            DesensitizedSseEmitter.super.completeWithError(ex);
+        }
+
+        /**
+         * {@link SseEventBuilder}构造的事件由文本片段以及事件数据交替组成，只有紧跟在以{@value DesensitizedSseEmitter#DATA_PREFIX}结尾的文本片段之后的才是事件数据
+         */
+        @Override
+        public boolean isElement(DataWithMediaType previous, DataWithMediaType item) {
+            return previous != null && previous.getData() instanceof String text && MediaType.TEXT_PLAIN.equals(previous.getMediaType()) && text.endsWith(DATA_PREFIX);
+        }
+    });
+
+    public DesensitizedSseEmitter() {
+    }
+
+    public DesensitizedSseEmitter(Long timeout) {
+        super(timeout);
+    }
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+        send(builder.build());
+    }
+
+    @Override
+    public void send(Set<DataWithMediaType> items) throws IOException {
+        support.send(items);
+    }
+
+    @Override
+    public void complete() {
+        support.complete();
+    }
+
+    @Override
+    public void completeWithError(Throwable ex) {
+        support.completeWithError(ex);
+    }
+
+    /**
+     * 响应开始时如果事件数据的类型仍然没有确定，则从处理器方法的返回值类型中解析，无法解析时响应失败
+     *
+     * @param outputMessage 响应
+     * @throws IllegalStateException 无法确定事件数据的类型
+     * @see DesensitizedEmitterSupport#bindToHandler()
+     */
+    @Override
+    protected void extendResponse(ServerHttpResponse outputMessage) {
+        support.bindToHandler();
+        super.extendResponse(outputMessage);
+    }
+}
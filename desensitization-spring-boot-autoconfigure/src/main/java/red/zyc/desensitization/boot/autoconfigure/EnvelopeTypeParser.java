@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+import red.zyc.parser.AnnotationParser;
+import red.zyc.parser.type.TypeParser;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.TypeVariable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 通过配置声明的响应实体的类型解析器，用来代替为每一种响应实体手写的类型解析器（例如例子中的{@code CustomizedResponseTypeParser}）。
+ * 响应实体会被浅复制一份，其中只有实际数据（payload）属性会被替换为脱敏后的对象，其它属性原样复制。
+ * 构造器以及所有属性的getter、setter方法在启动时通过{@link LambdaAccessors}转换成函数式接口，解析时不需要反射。
+ * <p>
+ * 响应实体必须拥有公共无参构造器，实际数据属性必须拥有公共getter以及setter方法，并且getter方法的返回值类型必须是响应实体的泛型参数。
+ * 实际数据只能是响应实体自身的一个属性，不支持{@code result.data}这样的嵌套属性路径，嵌套的响应实体需要为外层以及内层分别声明。
+ * 其它由实例字段保存的属性也必须同时拥有公共getter以及setter方法，否则复制时会丢失该属性，因此不满足这些条件时启动会失败。
+ *
+ * @author zyc
+ */
+public class EnvelopeTypeParser implements TypeParser<Object, AnnotatedParameterizedType> {
+
+    /**
+     * 响应实体的类型与其访问器的映射
+     */
+    private final Map<Class<?>, Envelope> envelopes;
+
+    /**
+     * @param payloads 响应实体的类型与其实际数据属性名称的映射
+     */
+    public EnvelopeTypeParser(Map<Class<?>, String> payloads) {
+        this.envelopes = payloads.entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, entry -> Envelope.of(entry.getKey(), entry.getValue())));
+    }
+
+    @Override
+    public Object parse(Object value, AnnotatedParameterizedType annotatedParameterizedType) {
+        Envelope envelope = envelopes.get(value.getClass());
+        Object copy = envelope.constructor().get();
+        for (Property property : envelope.properties()) {
+            property.setter().accept(copy, property.getter().apply(value));
+        }
+        AnnotatedType typeArgument = annotatedParameterizedType.getAnnotatedActualTypeArguments()[envelope.typeArgument()];
+        Property payload = envelope.payload();
+        payload.setter().accept(copy, AnnotationParser.parse(payload.getter().apply(value), typeArgument));
+        return copy;
+    }
+
+    @Override
+    public boolean support(Object value, AnnotatedType annotatedType) {
+        return value != null && envelopes.containsKey(value.getClass())
+                && annotatedType instanceof AnnotatedParameterizedType annotatedParameterizedType
+                && ((ParameterizedType) annotatedParameterizedType.getType()).getRawType() == value.getClass();
+    }
+
+    @Override
+    public int order() {
+        return TypeParserOrders.CONTAINER;
+    }
+
+    /**
+     * @param constructor  响应实体的构造器
+     * @param properties   除实际数据以外的其它属性
+     * @param payload      实际数据属性
+     * @param typeArgument 实际数据类型是响应实体的第几个泛型参数
+     */
+    private record Envelope(Supplier<Object> constructor, List<Property> properties, Property payload, int typeArgument) {
+
+        static Envelope of(Class<?> type, String payloadName) {
+            Assert.state(payloadName.indexOf('.') < 0, () -> type.getName() + "的实际数据属性" + payloadName + "必须是单个属性名称，不支持嵌套的属性路径");
+            PropertyDescriptor payload = BeanUtils.getPropertyDescriptor(type, payloadName);
+            Assert.state(payload != null && payload.getReadMethod() != null, () -> type.getName() + "中不存在可读的属性" + payloadName);
+            Assert.state(payload.getWriteMethod() != null, () -> type.getName() + "的实际数据属性" + payloadName + "没有公共的setter方法");
+            int typeArgument = payload.getReadMethod().getGenericReturnType() instanceof TypeVariable<?> typeVariable
+                    ? Arrays.asList(type.getTypeParameters()).indexOf(typeVariable) : -1;
+            Assert.state(typeArgument >= 0, () -> type.getName() + "的属性" + payloadName + "的类型必须是" + type.getSimpleName() + "的泛型参数");
+            List<Property> properties = Arrays.stream(BeanUtils.getPropertyDescriptors(type))
+                    .filter(descriptor -> !descriptor.getName().equals(payload.getName()))
+                    .filter(descriptor -> copyable(type, descriptor))
+                    .map(descriptor -> Property.of(descriptor.getReadMethod(), descriptor.getWriteMethod()))
+                    .toList();
+            return new Envelope(LambdaAccessors.constructor(type), properties, Property.of(payload.getReadMethod(), payload.getWriteMethod()), typeArgument);
+        }
+
+        /**
+         * @param type       响应实体的类型
+         * @param descriptor 属性
+         * @return 是否需要复制该属性，由实例字段保存却无法读写的属性会导致启动失败
+         */
+        private static boolean copyable(Class<?> type, PropertyDescriptor descriptor) {
+            if (descriptor.getReadMethod() != null && descriptor.getWriteMethod() != null) {
+                return true;
+            }
+            Field field = ReflectionUtils.findField(type, descriptor.getName());
+            Assert.state(field == null || Modifier.isStatic(field.getModifiers()),
+                    () -> type.getName() + "的属性" + descriptor.getName() + "没有公共的" + (descriptor.getReadMethod() == null ? "getter" : "setter") + "方法，复制响应实体时会丢失该属性");
+            return false;
+        }
+    }
+
+    private record Property(Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+
+        static Property of(Method getter, Method setter) {
+            return new Property(LambdaAccessors.getter(getter), LambdaAccessors.setter(setter));
+        }
+    }
+}
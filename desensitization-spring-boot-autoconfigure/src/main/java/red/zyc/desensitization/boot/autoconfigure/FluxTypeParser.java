@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import reactor.core.publisher.Flux;
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+
+/**
+ * 用来解析返回值类型为{@link Flux}的类型解析器，每个元素都会在发出时被脱敏，不会缓冲任何元素。
+ * 超出限制时被{@link DesensitizationLimits.Policy#MASK}掩盖为{@code null}的元素会从流中移除。
+ *
+ * @author zyc
+ */
+public class FluxTypeParser implements TypeParser<Flux<Object>, AnnotatedParameterizedType> {
+
+    @Override
+    public Flux<Object> parse(Flux<Object> flux, AnnotatedParameterizedType annotatedParameterizedType) {
+        AnnotatedType typeArgument = annotatedParameterizedType.getAnnotatedActualTypeArguments()[0];
+        DesensitizationContext.Settings settings = DesensitizationContext.capture();
+        return flux.mapNotNull(element -> settings.parse(element, typeArgument));
+    }
+
+    @Override
+    public boolean support(Object value, AnnotatedType annotatedType) {
+        return value instanceof Flux && annotatedType instanceof AnnotatedParameterizedType;
+    }
+
+    @Override
+    public int order() {
+        return TypeParserOrders.CONTAINER;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import red.zyc.parser.AnnotationParser;
+import red.zyc.parser.type.Cascade;
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.reflect.AnnotatedType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 由{@code desensitization-spring-boot-processor}注解处理器在编译期为{@link Cascade}目标类生成的类型解析器的父类。
+ * 生成的子类直接读写目标类的字段来构造脱敏后的新对象，只对标注了敏感注解或者需要级联脱敏的字段调用
+ * {@link AnnotationParser#parse(Object, AnnotatedType)}，从而避免了运行时通过反射遍历对象的所有字段。
+ * <p>
+ * 在{@link MethodDesensitizationInterceptor}的脱敏过程中，{@link CascadeTypeParser}会直接调用{@link #desensitize(Object)}，
+ * 以便生成的代码同样受到级联深度、元素个数等限制的约束；在此之外该解析器作为普通的类型解析器生效。
+ * 对于不会继续级联脱敏的类，生成的子类还会{@link #desensitizeAll(List) 按列批量脱敏}多个对象，
+ * {@link CascadeTypeParser}会在脱敏此类对象的集合或者数组时使用该方法。批量脱敏时每个字段只会通过{@link #fieldParser(AnnotatedType)}
+ * 解析一次候选的类型解析器，然后直接调用这些类型解析器处理该字段在所有对象中的值。
+ * 生成的子类通过{@link java.util.ServiceLoader}机制声明，并由{@link GeneratedCascadeTypeParserRegistrar}注册到spring上下文中。
+ *
+ * @param <T> 目标类的类型
+ * @author zyc
+ */
+public abstract class GeneratedCascadeTypeParser<T> implements TypeParser<T, AnnotatedType> {
+
+    private final Class<T> type;
+
+    protected GeneratedCascadeTypeParser(Class<T> type) {
+        this.type = type;
+    }
+
+    @Override
+    public T parse(T value, AnnotatedType annotatedType) {
+        return desensitize(value);
+    }
+
+    @Override
+    public boolean support(Object value, AnnotatedType annotatedType) {
+        return value != null && value.getClass() == type && annotatedType.getDeclaredAnnotation(Cascade.class) != null
+                && DesensitizationContext.current() == null;
+    }
+
+    @Override
+    public int order() {
+        return TypeParserOrders.GENERATED;
+    }
+
+    /**
+     * @return 目标类的类型
+     */
+    public Class<T> type() {
+        return type;
+    }
+
+    /**
+     * 构造一个字段被脱敏后的新对象
+     *
+     * @param value 目标类的对象
+     * @return 脱敏后的新对象
+     */
+    protected abstract T desensitize(T value);
+
+    /**
+     * @return 是否支持{@link #desensitizeAll(List) 按列批量脱敏}
+     */
+    protected boolean batchable() {
+        return false;
+    }
+
+    /**
+     * 批量脱敏多个对象，结果与逐个调用{@link #desensitize(Object)}一致。支持批量脱敏的子类会先构造所有新对象，
+     * 然后逐个字段地处理所有对象，默认实现则是逐个脱敏。
+     *
+     * @param values 目标类的对象，不包含{@code null}
+     * @return 与原对象顺序一致的脱敏后的新对象
+     */
+    protected List<T> desensitizeAll(List<T> values) {
+        List<T> desensitized = new ArrayList<>(values.size());
+        for (T value : values) {
+            desensitized.add(desensitize(value));
+        }
+        return desensitized;
+    }
+
+    /**
+     * 为一批对象的同一个字段解析类型解析器，生成的子类在{@link #desensitizeAll(List)}中为每个需要脱敏的字段调用一次
+     *
+     * @param annotatedType 字段的{@link AnnotatedType}
+     * @return 该字段的解析器
+     */
+    protected static FieldParser fieldParser(AnnotatedType annotatedType) {
+        return new FieldParser(annotatedType);
+    }
+
+    /**
+     * 一批对象中同一个字段的解析器。候选的类型解析器按照字段值的类型解析一次，之后类型相同的字段值直接调用这些类型解析器，
+     * 不再经过{@link AnnotationParser}的分派，所有候选的类型解析器都不支持的字段值才交由{@link AnnotationParser}处理。
+     */
+    public static final class FieldParser {
+
+        private final AnnotatedType annotatedType;
+
+        private Class<?> valueType;
+
+        private List<TypeParser<Object, AnnotatedType>> candidates = List.of();
+
+        private FieldParser(AnnotatedType annotatedType) {
+            this.annotatedType = annotatedType;
+        }
+
+        /**
+         * @param value 字段值
+         * @param <V>   字段值的类型
+         * @return 脱敏后的字段值
+         */
+        @SuppressWarnings("unchecked")
+        public <V> V parse(V value) {
+            if (value == null) {
+                return AnnotationParser.parse(null, annotatedType);
+            }
+            if (value.getClass() != valueType) {
+                valueType = value.getClass();
+                candidates = TypeParserRegistry.INSTANCE.candidates(valueType, annotatedType);
+            }
+            for (TypeParser<Object, AnnotatedType> candidate : candidates) {
+                if (candidate.support(value, annotatedType)) {
+                    return (V) candidate.parse(value, annotatedType);
+                }
+            }
+            return TypeParserRegistry.INSTANCE.parseUnclaimed(value, annotatedType);
+        }
+    }
+
+    /**
+     * 获取字段的{@link AnnotatedType}，生成的子类只会在类初始化时调用一次
+     *
+     * @param type  声明该字段的类
+     * @param field 字段名称
+     * @return 字段的{@link AnnotatedType}
+     */
+    protected static AnnotatedType annotatedType(Class<?> type, String field) {
+        try {
+            return type.getDeclaredField(field).getAnnotatedType();
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(type.getName() + "中不存在字段" + field, e);
+        }
+    }
+}
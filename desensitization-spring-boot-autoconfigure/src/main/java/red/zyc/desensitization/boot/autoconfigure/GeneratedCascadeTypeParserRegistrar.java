@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.core.type.AnnotationMetadata;
+
+import java.util.ServiceLoader;
+
+/**
+ * 将通过{@link ServiceLoader}机制声明的{@link GeneratedCascadeTypeParser}注册为spring上下文中的bean，
+ * 注册时只会加载这些类而不会实例化它们
+ *
+ * @author zyc
+ */
+class GeneratedCascadeTypeParserRegistrar implements ImportBeanDefinitionRegistrar, BeanClassLoaderAware {
+
+    private ClassLoader classLoader;
+
+    @Override
+    public void setBeanClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
+        ServiceLoader.load(GeneratedCascadeTypeParser.class, classLoader).stream()
+                .map(ServiceLoader.Provider::type)
+                .filter(type -> !registry.containsBeanDefinition(type.getName()))
+                .forEach(type -> registry.registerBeanDefinition(type.getName(), new RootBeanDefinition(type)));
+    }
+}
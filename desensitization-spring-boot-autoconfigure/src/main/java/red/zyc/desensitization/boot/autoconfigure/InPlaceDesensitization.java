@@ -0,0 +1,194 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import red.zyc.parser.AnnotationParser;
+
+import java.lang.reflect.AnnotatedArrayType;
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 原地脱敏对象，直接修改对象中需要脱敏的字段或者元素而不是构造一个新的对象。
+ * 每个类需要脱敏的字段只会在第一次遇到时计算一次，之后直接复用。
+ *
+ * @author zyc
+ * @see DesensitizeInPlace
+ */
+final class InPlaceDesensitization {
+
+    /**
+     * 可以原地替换元素的{@link List}
+     */
+    private static final Set<Class<?>> MUTABLE_LISTS = Set.of(ArrayList.class, LinkedList.class);
+
+    /**
+     * 可以原地替换值的{@link Map}，这些{@link Map}都允许值为{@code null}，因为值可能因为超出限制而被脱敏为{@code null}。
+     * 不允许值为{@code null}的{@link Map}（例如{@link java.util.concurrent.ConcurrentHashMap}）仍然会被复制。
+     */
+    private static final Set<Class<?>> MUTABLE_MAPS = Set.of(HashMap.class, LinkedHashMap.class, TreeMap.class);
+
+    /**
+     * 类是否标注了{@link DesensitizeInPlace}注解
+     */
+    private static final ClassValue<Boolean> ANNOTATED = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return AnnotatedElementUtils.hasAnnotation(type, DesensitizeInPlace.class);
+        }
+    };
+
+    /**
+     * 类中需要脱敏的字段，如果存在无法被修改的字段则为空
+     */
+    private static final ClassValue<Optional<List<DesensitizedField>>> FIELDS = new ClassValue<>() {
+        @Override
+        protected Optional<List<DesensitizedField>> computeValue(Class<?> type) {
+            List<DesensitizedField> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    AnnotatedType annotatedType = field.getAnnotatedType();
+                    if (Modifier.isStatic(field.getModifiers()) || !MethodDesensitizationInterceptor.needDesensitized(annotatedType)) {
+                        continue;
+                    }
+                    if (Modifier.isFinal(field.getModifiers()) || !field.trySetAccessible()) {
+                        return Optional.empty();
+                    }
+                    fields.add(new DesensitizedField(field, annotatedType));
+                }
+            }
+            return Optional.of(List.copyOf(fields));
+        }
+    };
+
+    private InPlaceDesensitization() {
+    }
+
+    /**
+     * @param type 类
+     * @return 该类中的方法的返回值是否被原地脱敏
+     */
+    static boolean annotated(Class<?> type) {
+        return ANNOTATED.get(type);
+    }
+
+    /**
+     * @param value 对象
+     * @return 该对象需要脱敏的字段是否都可以被修改
+     */
+    static boolean cascadable(Object value) {
+        return FIELDS.get(value.getClass()).isPresent();
+    }
+
+    /**
+     * 原地级联脱敏对象中需要脱敏的字段
+     *
+     * @param value 对象
+     * @return 原对象
+     */
+    static Object cascade(Object value) {
+        try {
+            for (DesensitizedField desensitizedField : FIELDS.get(value.getClass()).orElseThrow()) {
+                Field field = desensitizedField.field();
+                Object fieldValue = field.get(value);
+                if (fieldValue != null) {
+                    Object desensitized = AnnotationParser.parse(fieldValue, desensitizedField.annotatedType());
+                    if (desensitized != fieldValue) {
+                        field.set(value, desensitized);
+                    }
+                }
+            }
+            return value;
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 只有本身没有标注任何注解的可变{@link List}、键不需要脱敏的可变{@link Map}以及引用类型的数组才能被原地脱敏
+     *
+     * @param value         对象
+     * @param annotatedType 对象的{@link AnnotatedType}
+     * @return 该对象是否是可以被原地脱敏的容器
+     */
+    static boolean container(Object value, AnnotatedType annotatedType) {
+        if (annotatedType.getDeclaredAnnotations().length != 0) {
+            return false;
+        }
+        if (annotatedType instanceof AnnotatedParameterizedType parameterizedType) {
+            AnnotatedType[] typeArguments = parameterizedType.getAnnotatedActualTypeArguments();
+            return MUTABLE_LISTS.contains(value.getClass()) && typeArguments.length == 1
+                    || MUTABLE_MAPS.contains(value.getClass()) && typeArguments.length == 2 && !MethodDesensitizationInterceptor.needDesensitized(typeArguments[0]);
+        }
+        return annotatedType instanceof AnnotatedArrayType && value instanceof Object[];
+    }
+
+    /**
+     * 原地脱敏容器中的元素
+     *
+     * @param value         {@link #container(Object, AnnotatedType) 可以被原地脱敏的容器}
+     * @param annotatedType 容器的{@link AnnotatedType}
+     * @return 原容器
+     */
+    @SuppressWarnings("unchecked")
+    static Object desensitizeContainer(Object value, AnnotatedType annotatedType) {
+        if (value instanceof Object[] array) {
+            AnnotatedType componentType = ((AnnotatedArrayType) annotatedType).getAnnotatedGenericComponentType();
+            for (int i = 0; i < array.length; i++) {
+                array[i] = desensitize(array[i], componentType);
+            }
+        } else if (value instanceof List<?> list) {
+            AnnotatedType elementType = ((AnnotatedParameterizedType) annotatedType).getAnnotatedActualTypeArguments()[0];
+            ListIterator<Object> iterator = (ListIterator<Object>) list.listIterator();
+            while (iterator.hasNext()) {
+                Object element = iterator.next();
+                Object desensitized = desensitize(element, elementType);
+                if (desensitized != element) {
+                    iterator.set(desensitized);
+                }
+            }
+        } else {
+            AnnotatedType valueType = ((AnnotatedParameterizedType) annotatedType).getAnnotatedActualTypeArguments()[1];
+            ((Map<Object, Object>) value).replaceAll((k, v) -> desensitize(v, valueType));
+        }
+        return value;
+    }
+
+    private static Object desensitize(Object value, AnnotatedType annotatedType) {
+        return value == null ? null : AnnotationParser.parse(value, annotatedType);
+    }
+
+    /**
+     * @param field         需要脱敏的字段
+     * @param annotatedType 字段的{@link AnnotatedType}
+     */
+    private record DesensitizedField(Field field, AnnotatedType annotatedType) {
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import red.zyc.desensitization.Sensitive;
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationJacksonModule.AnnotatedValue;
+import red.zyc.parser.type.AnnotatedTypeToken;
+
+import java.lang.reflect.AnnotatedArrayType;
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 在Jackson序列化时对spring-mvc处理器方法的返回值进行脱敏。对于返回值由{@link ResponseBody}写出的处理器方法，
+ * {@link MethodDesensitizationInterceptor}不再构造一个脱敏后的返回值，而是由该类在写出响应体之前将其包装成
+ * {@link AnnotatedValue}，然后由{@link DesensitizationJacksonModule}在序列化的同时完成脱敏，避免了中间对象的构造。
+ * 如果最终选择的{@link HttpMessageConverter}不是Jackson，例如返回值是{@link String}，或者其{@link com.fasterxml.jackson.databind.ObjectMapper}
+ * 没有注册{@link DesensitizationJacksonModule}，则仍然在写出之前对响应体进行脱敏。
+ * <p>
+ * 只有返回值类型由集合、数组、{@link Map}以及标注了敏感注解或者{@link red.zyc.parser.type.Cascade}注解的类型组成的方法才会
+ * 在序列化时脱敏，诸如{@code CustomizedResponse<@Email String>}这种需要自定义类型解析器的返回值仍然由拦截器脱敏。
+ *
+ * @author zyc
+ */
+@ControllerAdvice
+public class JacksonSerializationDesensitization implements SerializationDesensitization, ResponseBodyAdvice<Object> {
+
+    /**
+     * 保存返回值脱敏被延迟的处理器方法的请求属性名称
+     */
+    private static final String DEFERRED_METHOD_ATTRIBUTE = JacksonSerializationDesensitization.class.getName() + ".DEFERRED_METHOD";
+
+    /**
+     * {@link DesensitizationJacksonModule}的类型id
+     */
+    private static final Object MODULE_TYPE_ID = new DesensitizationJacksonModule().getTypeId();
+
+    private final ObjectProvider<RequestMappingHandlerAdapter> handlerAdapters;
+
+    public JacksonSerializationDesensitization(ObjectProvider<RequestMappingHandlerAdapter> handlerAdapters) {
+        this.handlerAdapters = handlerAdapters;
+    }
+
+    @Override
+    public boolean supports(Method method) {
+        if (!AnnotatedElementUtils.hasAnnotation(method, RequestMapping.class)) {
+            return false;
+        }
+        if (!HttpEntity.class.isAssignableFrom(method.getReturnType())
+                && !AnnotatedElementUtils.hasAnnotation(method, ResponseBody.class)
+                && !AnnotatedElementUtils.hasAnnotation(method.getDeclaringClass(), ResponseBody.class)) {
+            return false;
+        }
+        AnnotatedType bodyType = bodyType(method);
+        return bodyType != null && serializable(bodyType);
+    }
+
+    @Override
+    public boolean defer(Method method) {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes == null
+                || !(requestAttributes.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof HandlerMethod handlerMethod)
+                || !handlerMethod.getMethod().equals(method)
+                || requestAttributes.getAttribute(DEFERRED_METHOD_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null) {
+            return false;
+        }
+        requestAttributes.setAttribute(DEFERRED_METHOD_ATTRIBUTE, method, RequestAttributes.SCOPE_REQUEST);
+        return true;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType, Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request, ServerHttpResponse response) {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        Method method = returnType.getMethod();
+        if (body == null || method == null || requestAttributes == null || !method.equals(requestAttributes.getAttribute(DEFERRED_METHOD_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST))) {
+            return body;
+        }
+        requestAttributes.removeAttribute(DEFERRED_METHOD_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        AnnotatedType bodyType = bodyType(method);
+        return moduleRegistered(selectedConverterType) ? new AnnotatedValue(body, bodyType) : Sensitive.desensitize(body, AnnotatedTypeToken.of(bodyType));
+    }
+
+    /**
+     * @param converterType 最终选择的{@link HttpMessageConverter}的类型
+     * @return 该类型的Jackson消息转换器使用的{@link com.fasterxml.jackson.databind.ObjectMapper}是否注册了{@link DesensitizationJacksonModule}，
+     * 无法确定时返回{@code false}
+     */
+    private boolean moduleRegistered(Class<? extends HttpMessageConverter<?>> converterType) {
+        if (!AbstractJackson2HttpMessageConverter.class.isAssignableFrom(converterType)) {
+            return false;
+        }
+        RequestMappingHandlerAdapter handlerAdapter = handlerAdapters.getIfUnique();
+        if (handlerAdapter == null) {
+            return false;
+        }
+        for (HttpMessageConverter<?> converter : handlerAdapter.getMessageConverters()) {
+            if (converter.getClass() == converterType) {
+                return ((AbstractJackson2HttpMessageConverter) converter).getObjectMapper().getRegisteredModuleIds().contains(MODULE_TYPE_ID);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param method 处理器方法
+     * @return 响应体的{@link AnnotatedType}，如果无法确定响应体的类型则返回{@code null}
+     */
+    private static AnnotatedType bodyType(Method method) {
+        AnnotatedType returnType = method.getAnnotatedReturnType();
+        if (!HttpEntity.class.isAssignableFrom(method.getReturnType())) {
+            return returnType;
+        }
+        return returnType instanceof AnnotatedParameterizedType annotatedParameterizedType ? annotatedParameterizedType.getAnnotatedActualTypeArguments()[0] : null;
+    }
+
+    /**
+     * @param annotatedType 对象的{@link AnnotatedType}
+     * @return 该类型的对象是否能够由{@link DesensitizationJacksonModule}在序列化时脱敏
+     */
+    private static boolean serializable(AnnotatedType annotatedType) {
+        if (annotatedType instanceof AnnotatedArrayType annotatedArrayType) {
+            return serializable(annotatedArrayType.getAnnotatedGenericComponentType());
+        }
+        if (annotatedType instanceof AnnotatedParameterizedType annotatedParameterizedType) {
+            Class<?> rawType = (Class<?>) ((ParameterizedType) annotatedParameterizedType.getType()).getRawType();
+            AnnotatedType[] typeArguments = annotatedParameterizedType.getAnnotatedActualTypeArguments();
+            if (Collection.class.isAssignableFrom(rawType) || Map.class.isAssignableFrom(rawType)) {
+                return Arrays.stream(typeArguments).allMatch(JacksonSerializationDesensitization::serializable);
+            }
+            return Arrays.stream(typeArguments).noneMatch(MethodDesensitizationInterceptor::needDesensitized);
+        }
+        return annotatedType.getType() instanceof Class;
+    }
+}
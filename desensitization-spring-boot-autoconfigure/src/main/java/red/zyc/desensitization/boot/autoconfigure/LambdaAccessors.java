@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 通过{@link LambdaMetafactory}将构造器、getter以及setter方法转换成函数式接口的工具类，转换后的调用与直接调用方法一样
+ * 不需要反射。转换时使用目标类的{@link MethodHandles#privateLookupIn(Class, MethodHandles.Lookup) 私有Lookup}，
+ * 生成的函数式接口实现与目标类位于同一个类加载器中。如果仍然无法通过{@link LambdaMetafactory}转换，则退化为通过
+ * {@link MethodHandle#invokeWithArguments(Object...)}调用，此时会输出一次警告日志。
+ *
+ * @author zyc
+ */
+final class LambdaAccessors {
+
+    private static final Log LOGGER = LogFactory.getLog(LambdaAccessors.class);
+
+    /**
+     * 是否已经输出过退化为{@link MethodHandle}调用的警告日志
+     */
+    private static final AtomicBoolean WARNED = new AtomicBoolean();
+
+    private LambdaAccessors() {
+    }
+
+    /**
+     * @param type 类
+     * @return 调用该类公共无参构造器的{@link Supplier}
+     */
+    @SuppressWarnings("unchecked")
+    static Supplier<Object> constructor(Class<?> type) {
+        try {
+            MethodHandles.Lookup lookup = lookup(type);
+            MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class));
+            try {
+                return (Supplier<Object>) LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class), constructor, constructor.type()).getTarget().invokeExact();
+            } catch (Throwable e) {
+                warn(type.getName() + "的无参构造器", e);
+                return () -> invoke(constructor);
+            }
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(type.getName() + "不存在公共无参构造器", e);
+        }
+    }
+
+    /**
+     * @param method 公共getter方法
+     * @return 调用该方法的{@link Function}
+     */
+    @SuppressWarnings("unchecked")
+    static Function<Object, Object> getter(Method method) {
+        MethodHandles.Lookup lookup = lookup(method.getDeclaringClass());
+        MethodHandle getter = unreflect(lookup, method);
+        try {
+            return (Function<Object, Object>) LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class), getter, getter.type().wrap()).getTarget().invokeExact();
+        } catch (Throwable e) {
+            warn(method.toString(), e);
+            return object -> invoke(getter, object);
+        }
+    }
+
+    /**
+     * @param method 公共setter方法
+     * @return 调用该方法的{@link BiConsumer}
+     */
+    @SuppressWarnings("unchecked")
+    static BiConsumer<Object, Object> setter(Method method) {
+        MethodHandles.Lookup lookup = lookup(method.getDeclaringClass());
+        MethodHandle setter = unreflect(lookup, method);
+        try {
+            return (BiConsumer<Object, Object>) LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class), setter, setter.type().wrap().changeReturnType(void.class)).getTarget().invokeExact();
+        } catch (Throwable e) {
+            warn(method.toString(), e);
+            return (object, value) -> invoke(setter, object, value);
+        }
+    }
+
+    /**
+     * @param type 目标类
+     * @return 目标类的私有{@link MethodHandles.Lookup}，目标类所在的模块没有向当前模块开放时使用当前类的{@link MethodHandles.Lookup}
+     */
+    private static MethodHandles.Lookup lookup(Class<?> type) {
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            return MethodHandles.lookup();
+        }
+    }
+
+    private static void warn(String member, Throwable cause) {
+        if (WARNED.compareAndSet(false, true)) {
+            LOGGER.warn("无法通过LambdaMetafactory转换" + member + "，退化为通过MethodHandle调用，之后的此类情况不再提示", cause);
+        }
+    }
+
+    private static MethodHandle unreflect(MethodHandles.Lookup lookup, Method method) {
+        try {
+            return lookup.unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(method + "无法被访问", e);
+        }
+    }
+
+    private static Object invoke(MethodHandle methodHandle, Object... arguments) {
+        try {
+            return methodHandle.invokeWithArguments(arguments);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import java.lang.reflect.AnnotatedType;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 延迟脱敏的只读{@link List}视图，只有在元素被访问时才会对该元素进行脱敏并缓存脱敏结果。
+ * 该视图的大小是固定的，并且不支持任何修改操作，因为参数属于调用方，修改无法写回原{@link List}。
+ * <p>
+ * 元素在视图创建时所在的{@link DesensitizationContext}之外被访问，因此视图会在创建时{@link DesensitizationContext#capture() 捕获}
+ * 该上下文的设置，每个元素都在一个以该设置创建的新上下文中脱敏，{@link DesensitizationLimits}中的限制对每个元素单独生效。
+ * 脱敏结果通过{@link AtomicReferenceArray}安全地发布，多个线程同时访问同一个元素时该元素可能会被重复脱敏，
+ * 但是每个线程得到的都是完整的脱敏后的元素。
+ *
+ * @param <E> 元素类型
+ * @author zyc
+ */
+final class LazyDesensitizedList<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final Object UNRESOLVED = new Object();
+
+    private final List<E> source;
+
+    private final AnnotatedType elementType;
+
+    private final DesensitizationContext.Settings settings;
+
+    private final AtomicReferenceArray<Object> resolved;
+
+    LazyDesensitizedList(List<E> source, AnnotatedType elementType, DesensitizationContext.Settings settings) {
+        this.source = source;
+        this.elementType = elementType;
+        this.settings = settings;
+        this.resolved = new AtomicReferenceArray<>(source.size());
+        for (int i = 0; i < source.size(); i++) {
+            resolved.setPlain(i, UNRESOLVED);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Object element = resolved.get(index);
+        if (element == UNRESOLVED) {
+            element = settings.parse(source.get(index), elementType);
+            resolved.set(index, element);
+        }
+        return (E) element;
+    }
+
+    @Override
+    public int size() {
+        return resolved.length();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import java.lang.reflect.AnnotatedType;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 延迟脱敏的只读{@link Map}视图，只有在值被访问时才会对该值进行脱敏并缓存脱敏结果。
+ * 由于键的脱敏会改变查找的结果，因此该视图只用于键不需要脱敏的{@link Map}。
+ * <p>
+ * 与{@link LazyDesensitizedList}一样，视图会在创建时捕获当前{@link DesensitizationContext}的设置，每个值都在一个以该设置创建的
+ * 新上下文中脱敏，脱敏结果通过{@link ConcurrentHashMap}安全地发布。
+ *
+ * @param <K> 键的类型
+ * @param <V> 值的类型
+ * @author zyc
+ */
+final class LazyDesensitizedMap<K, V> extends AbstractMap<K, V> {
+
+    private static final Object NULL_KEY = new Object();
+
+    private final Map<K, V> source;
+
+    private final AnnotatedType valueType;
+
+    private final DesensitizationContext.Settings settings;
+
+    private final Map<Object, Object> resolved = new ConcurrentHashMap<>();
+
+    LazyDesensitizedMap(Map<K, V> source, AnnotatedType valueType, DesensitizationContext.Settings settings) {
+        this.source = source;
+        this.valueType = valueType;
+        this.settings = settings;
+    }
+
+    @Override
+    public V get(Object key) {
+        V value = source.get(key);
+        return value == null ? null : resolve(key, value);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return source.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return source.size();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                Iterator<Entry<K, V>> iterator = source.entrySet().iterator();
+                return new Iterator<>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        Entry<K, V> entry = iterator.next();
+                        V value = entry.getValue();
+                        return new SimpleImmutableEntry<>(entry.getKey(), value == null ? null : resolve(entry.getKey(), value));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return source.size();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private V resolve(Object key, V value) {
+        return (V) resolved.computeIfAbsent(key == null ? NULL_KEY : key, k -> settings.parse(value, valueType));
+    }
+}
@@ -18,9 +18,12 @@ package red.zyc.desensitization.boot.autoconfigure;
 
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
-import red.zyc.desensitization.Sensitive;
+import org.springframework.http.HttpEntity;
+import org.springframework.util.ClassUtils;
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationLimits.Limit;
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationLimits.Policy;
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationMetrics.Phase;
 import red.zyc.parser.handler.Parse;
-import red.zyc.parser.type.AnnotatedTypeToken;
 import red.zyc.parser.type.Cascade;
 
 import java.lang.reflect.AnnotatedArrayType;
@@ -29,9 +32,14 @@ import java.lang.reflect.AnnotatedType;
 import java.lang.reflect.AnnotatedTypeVariable;
 import java.lang.reflect.AnnotatedWildcardType;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
 import java.util.Arrays;
-import java.util.stream.IntStream;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * 全局方法advice
@@ -40,17 +48,207 @@ import java.util.stream.IntStream;
  */
 public class MethodDesensitizationInterceptor implements MethodInterceptor {
 
+    private static final int RETURN_VALUE = -1;
+
+    /**
+     * 是否存在spring webmvc，不存在时也就不可能返回需要显式指定原样发送的emitter
+     */
+    private static final boolean WEBMVC_PRESENT = ClassUtils.isPresent("org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter", MethodDesensitizationInterceptor.class.getClassLoader());
+
+    /**
+     * 方法的脱敏计划缓存
+     */
+    private final Map<Method, MethodDesensitizationPlan> plans = new ConcurrentHashMap<>();
+
+    private final DesensitizationMetrics metrics;
+
+    private final SerializationDesensitization serializationDesensitization;
+
+    /**
+     * 是否对集合以及Map类型的参数进行延迟脱敏
+     */
+    private boolean lazyArguments;
+
+    /**
+     * 脱敏参数或返回值时的保护限制
+     */
+    private DesensitizationLimits limits = DesensitizationLimits.NONE;
+
+    /**
+     * 是否默认原地脱敏
+     */
+    private boolean inPlace;
+
+    /**
+     * 决定本次调用是否需要脱敏的策略
+     */
+    private DesensitizationPolicy policy = DesensitizationPolicy.ALWAYS;
+
+    /**
+     * 登记了类型解析器的spring上下文，{@code null}表示最近登记的spring上下文
+     *
+     * @see TypeParserRegistry
+     */
+    private Object owner;
+
+    public MethodDesensitizationInterceptor() {
+        this(DesensitizationMetrics.NONE, SerializationDesensitization.NONE);
+    }
+
+    public MethodDesensitizationInterceptor(DesensitizationMetrics metrics, SerializationDesensitization serializationDesensitization) {
+        this.metrics = metrics;
+        this.serializationDesensitization = serializationDesensitization;
+    }
+
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
         Method method = invocation.getMethod();
+        MethodDesensitizationPlan plan = plan(method);
+        if (plan == MethodDesensitizationPlan.NONE) {
+            return invocation.proceed();
+        }
+        if (!policy.desensitize(invocation)) {
+            Object proceed = invocation.proceed();
+            unmasked(proceed);
+            return proceed;
+        }
+        boolean sampled = metrics.sample();
+        // 脱敏所有参数以及返回值的剩余耗时额度，方法本身的执行时间不计算在内
+        long budget = limits.maxNanos();
+        long start = budget >= 0 ? System.nanoTime() : 0;
         Object[] arguments = invocation.getArguments();
-        Parameter[] parameters = method.getParameters();
-        IntStream.range(0, parameters.length)
-                .filter(i -> needDesensitized(parameters[i].getAnnotatedType()))
-                .forEach(i -> arguments[i] = Sensitive.desensitize(arguments[i], AnnotatedTypeToken.of(parameters[i].getAnnotatedType())));
+        for (int i = 0; i < plan.parameterCount(); i++) {
+            int index = plan.parameterIndex(i);
+            arguments[index] = desensitize(method, plan, i, arguments[index], sampled, start + budget);
+        }
+        if (budget >= 0) {
+            budget -= System.nanoTime() - start;
+        }
         Object proceed = invocation.proceed();
-        AnnotatedType returnType = method.getAnnotatedReturnType();
-        return needDesensitized(returnType) ? Sensitive.desensitize(proceed, AnnotatedTypeToken.of(returnType)) : proceed;
+        if (plan.returnType() == null || (plan.isReturnValueDeferrable() && serializationDesensitization.defer(method))) {
+            return proceed;
+        }
+        return desensitize(method, plan, RETURN_VALUE, proceed, sampled, budget >= 0 ? System.nanoTime() + budget : 0);
+    }
+
+    /**
+     * 设置是否对集合以及Map类型的参数进行延迟脱敏。开启后声明类型为{@link java.util.List}、{@link java.util.Collection}、
+     * {@link Iterable}或者键不需要脱敏的{@link Map}的参数不会被复制，而是被替换成一个只在元素被访问时才进行脱敏的只读视图，
+     * 方法内部修改该参数会抛出{@link UnsupportedOperationException}。
+     *
+     * @param lazyArguments 是否对集合以及Map类型的参数进行延迟脱敏
+     */
+    public void setLazyArguments(boolean lazyArguments) {
+        this.lazyArguments = lazyArguments;
+    }
+
+    /**
+     * 设置脱敏参数或返回值时的保护限制
+     *
+     * @param limits 脱敏参数或返回值时的保护限制
+     */
+    public void setLimits(DesensitizationLimits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * 设置是否默认原地脱敏所有方法的返回值，关闭时只有标注了{@link DesensitizeInPlace}的方法或者类中的方法才会原地脱敏返回值。
+     * 方法参数属于调用方，总是被复制，不会被原地脱敏。
+     *
+     * @param inPlace 是否默认原地脱敏
+     */
+    public void setInPlace(boolean inPlace) {
+        this.inPlace = inPlace;
+    }
+
+    /**
+     * 设置决定本次调用是否需要脱敏的策略
+     *
+     * @param policy 决定本次调用是否需要脱敏的策略
+     */
+    public void setPolicy(DesensitizationPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * 设置登记了类型解析器的spring上下文，脱敏时只会使用该spring上下文中的类型解析器
+     *
+     * @param owner 登记了类型解析器的spring上下文
+     */
+    void setOwner(Object owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * 在一个新的{@link DesensitizationContext}中脱敏参数或返回值，如果本次调用被采样则同时记录脱敏指标。
+     * 超出限制时同样会记录指标，如果超出限制后的处理策略是{@link Policy#MASK}，则将整个对象{@link DesensitizationLimits#mask(Object) 替换为占位符}。
+     *
+     * @param method    被拦截的方法
+     * @param plan      方法的脱敏计划
+     * @param parameter 第几个需要脱敏的参数，如果脱敏的是返回值则为{@link #RETURN_VALUE}
+     * @param value     需要脱敏的对象
+     * @param sampled   本次调用是否被采样
+     * @param deadline  脱敏的截止时间，只有配置了最大耗时才有意义
+     * @return 脱敏后的对象
+     */
+    private Object desensitize(Method method, MethodDesensitizationPlan plan, int parameter, Object value, boolean sampled, long deadline) {
+        DesensitizationContext context = DesensitizationContext.open(owner, limits, deadline, parameter == RETURN_VALUE && plan.isInPlace());
+        long start = sampled ? System.nanoTime() : 0;
+        try {
+            return parameter == RETURN_VALUE ? plan.desensitizeReturnValue(value) : plan.desensitizeArgument(parameter, value);
+        } catch (DesensitizationLimitExceededException e) {
+            if (e.getPolicy() != Policy.MASK) {
+                throw e;
+            }
+            return limits.mask(value);
+        } finally {
+            context.close();
+            Phase phase = parameter == RETURN_VALUE ? Phase.RETURN_VALUE : Phase.ARGUMENT;
+            Limit exceeded = context.exceeded();
+            if (exceeded != null) {
+                metrics.limitExceeded(method, phase, exceeded, limits.policy(exceeded));
+            }
+            if (sampled) {
+                metrics.record(method, phase, context.parser(), System.nanoTime() - start, context.elements(), context.maxDepth());
+            }
+        }
+    }
+
+    /**
+     * 显式指定emitter原样发送，否则emitter会在响应开始时从处理器方法的返回值类型中解析元素类型并脱敏。
+     * emitter既可以直接返回，也可以被包装在{@link HttpEntity}（例如{@link org.springframework.http.ResponseEntity}）中返回。
+     *
+     * @param returnValue 方法的返回值
+     */
+    private static void unmasked(Object returnValue) {
+        if (!WEBMVC_PRESENT) {
+            return;
+        }
+        DesensitizedEmitterSupport support = DesensitizedEmitterSupport.of(returnValue instanceof HttpEntity<?> httpEntity ? httpEntity.getBody() : returnValue);
+        if (support != null) {
+            support.unmasked();
+        }
+    }
+
+    /**
+     * 获取方法的脱敏计划，计划只会在方法第一次被调用时计算一次
+     *
+     * @param method 方法
+     * @return 方法的脱敏计划
+     */
+    MethodDesensitizationPlan plan(Method method) {
+        MethodDesensitizationPlan plan = plans.get(method);
+        return plan != null ? plan : plans.computeIfAbsent(method, key -> MethodDesensitizationPlan.of(key, serializationDesensitization, lazyArguments, inPlace));
+    }
+
+    /**
+     * 判断方法的参数或者返回值是否需要被脱敏
+     *
+     * @param method 方法
+     * @return 该方法的参数或者返回值是否需要被脱敏
+     */
+    static boolean needDesensitized(Method method) {
+        return needDesensitized(method.getAnnotatedReturnType()) || Arrays.stream(method.getParameters()).anyMatch(parameter -> needDesensitized(parameter.getAnnotatedType()));
     }
 
     /**
@@ -67,28 +265,46 @@ public class MethodDesensitizationInterceptor implements MethodInterceptor {
      * @param annotatedType 对象的{@link AnnotatedType}
      * @return 该对象是否需要被脱敏
      */
-    private boolean needDesensitized(AnnotatedType annotatedType) {
-        if (Arrays.stream(annotatedType.getDeclaredAnnotations()).anyMatch(annotation -> annotation.annotationType().isAnnotationPresent(Parse.class))) {
-            return true;
-        }
-        if (annotatedType.getDeclaredAnnotation(Cascade.class) != null) {
+    static boolean needDesensitized(AnnotatedType annotatedType) {
+        return anyMatch(annotatedType, type -> type.getDeclaredAnnotation(Cascade.class) != null
+                || Arrays.stream(type.getDeclaredAnnotations()).anyMatch(annotation -> annotation.annotationType().isAnnotationPresent(Parse.class)));
+    }
+
+    /**
+     * 依次遍历对象的{@link AnnotatedType}及其嵌套的{@link AnnotatedType}，包括类型变量以及通配符的边界、泛型参数以及数组元素，
+     * 直到某一个{@link AnnotatedType}满足条件为止。同一条路径上重复出现的类型变量，例如{@code T extends Comparable<T>}
+     * 中的{@code T}，不会被再次遍历。
+     *
+     * @param annotatedType 对象的{@link AnnotatedType}
+     * @param predicate     条件
+     * @return 是否存在满足条件的{@link AnnotatedType}
+     */
+    static boolean anyMatch(AnnotatedType annotatedType, Predicate<AnnotatedType> predicate) {
+        return anyMatch(annotatedType, predicate, Set.of());
+    }
+
+    private static boolean anyMatch(AnnotatedType annotatedType, Predicate<AnnotatedType> predicate, Set<Type> typeVariables) {
+        if (predicate.test(annotatedType)) {
             return true;
         }
         if (annotatedType instanceof AnnotatedTypeVariable annotatedTypeVariable) {
-            AnnotatedType[] annotatedBounds = annotatedTypeVariable.getAnnotatedBounds();
-            return Arrays.stream(annotatedBounds).anyMatch(this::needDesensitized);
+            if (typeVariables.contains(annotatedTypeVariable.getType())) {
+                return false;
+            }
+            Set<Type> path = new HashSet<>(typeVariables);
+            path.add(annotatedTypeVariable.getType());
+            return Arrays.stream(annotatedTypeVariable.getAnnotatedBounds()).anyMatch(bound -> anyMatch(bound, predicate, path));
         }
         if (annotatedType instanceof AnnotatedWildcardType annotatedWildcardType) {
-            AnnotatedType[] annotatedUpperBounds = annotatedWildcardType.getAnnotatedUpperBounds();
-            AnnotatedType[] annotatedBounds = annotatedUpperBounds.length == 0 ? annotatedWildcardType.getAnnotatedLowerBounds() : annotatedUpperBounds;
-            return Arrays.stream(annotatedBounds).anyMatch(this::needDesensitized);
+            return Stream.concat(Arrays.stream(annotatedWildcardType.getAnnotatedUpperBounds()), Arrays.stream(annotatedWildcardType.getAnnotatedLowerBounds()))
+                    .anyMatch(bound -> anyMatch(bound, predicate, typeVariables));
         }
         if (annotatedType instanceof AnnotatedParameterizedType annotatedParameterizedType) {
             AnnotatedType[] annotatedActualTypeArguments = annotatedParameterizedType.getAnnotatedActualTypeArguments();
-            return Arrays.stream(annotatedActualTypeArguments).anyMatch(this::needDesensitized);
+            return Arrays.stream(annotatedActualTypeArguments).anyMatch(typeArgument -> anyMatch(typeArgument, predicate, typeVariables));
         }
         if (annotatedType instanceof AnnotatedArrayType annotatedArrayType) {
-            return needDesensitized(annotatedArrayType.getAnnotatedGenericComponentType());
+            return anyMatch(annotatedArrayType.getAnnotatedGenericComponentType(), predicate, typeVariables);
         }
         return false;
     }
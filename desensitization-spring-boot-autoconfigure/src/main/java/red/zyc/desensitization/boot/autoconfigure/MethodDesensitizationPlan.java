@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import red.zyc.desensitization.Sensitive;
+import red.zyc.parser.type.AnnotatedTypeToken;
+
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+
+/**
+ * 方法的脱敏计划，在方法第一次被调用时根据方法签名预先计算出哪些参数以及返回值需要被脱敏，
+ * 并提前构造好对应的{@link AnnotatedTypeToken}，之后的每次调用都直接复用该计划。
+ * 该对象是不可变的，可以被多个线程安全地共享。
+ *
+ * @author zyc
+ * @see MethodDesensitizationInterceptor
+ */
+final class MethodDesensitizationPlan {
+
+    /**
+     * 不需要进行任何脱敏处理的计划
+     */
+    static final MethodDesensitizationPlan NONE = new MethodDesensitizationPlan(new int[0], newTokenArray(0), new LazyView[0], null, null, false, false);
+
+    /**
+     * 需要脱敏的参数下标
+     */
+    private final int[] parameterIndexes;
+
+    /**
+     * 与{@link #parameterIndexes}一一对应的参数类型
+     */
+    private final AnnotatedTypeToken<Object>[] parameterTypeTokens;
+
+    /**
+     * 与{@link #parameterIndexes}一一对应的延迟脱敏视图，如果参数不能被延迟脱敏则对应的元素为{@code null}
+     */
+    private final LazyView[] lazyViews;
+
+    /**
+     * 返回值类型，如果返回值不需要脱敏则为{@code null}
+     */
+    private final AnnotatedTypeToken<Object> returnTypeToken;
+
+    /**
+     * 返回值的{@link AnnotatedType}，如果返回值不需要脱敏则为{@code null}
+     */
+    private final AnnotatedType returnType;
+
+    /**
+     * 返回值的脱敏是否可以延迟到序列化时进行
+     *
+     * @see SerializationDesensitization
+     */
+    private final boolean returnValueDeferrable;
+
+    /**
+     * 返回值是否原地脱敏，参数总是被复制
+     *
+     * @see DesensitizeInPlace
+     */
+    private final boolean inPlace;
+
+    private MethodDesensitizationPlan(int[] parameterIndexes, AnnotatedTypeToken<Object>[] parameterTypeTokens, LazyView[] lazyViews,
+                                      AnnotatedType returnType, AnnotatedTypeToken<Object> returnTypeToken, boolean returnValueDeferrable, boolean inPlace) {
+        this.parameterIndexes = parameterIndexes;
+        this.parameterTypeTokens = parameterTypeTokens;
+        this.lazyViews = lazyViews;
+        this.returnType = returnType;
+        this.returnTypeToken = returnTypeToken;
+        this.returnValueDeferrable = returnValueDeferrable;
+        this.inPlace = inPlace;
+    }
+
+    /**
+     * 根据方法签名构造脱敏计划
+     *
+     * @param method                      方法
+     * @param serializationDesensitization 将返回值的脱敏延迟到序列化时进行的策略
+     * @param lazyArguments               是否对集合以及Map类型的参数进行延迟脱敏
+     * @param inPlace                     是否默认原地脱敏返回值，否则只有标注了{@link DesensitizeInPlace}的方法或者类中的方法才会原地脱敏返回值
+     * @return 方法的脱敏计划，如果方法的参数和返回值都不需要脱敏则返回{@link #NONE}
+     */
+    static MethodDesensitizationPlan of(Method method, SerializationDesensitization serializationDesensitization, boolean lazyArguments, boolean inPlace) {
+        Parameter[] parameters = method.getParameters();
+        int[] parameterIndexes = IntStream.range(0, parameters.length)
+                .filter(i -> MethodDesensitizationInterceptor.needDesensitized(parameters[i].getAnnotatedType()))
+                .toArray();
+        AnnotatedTypeToken<Object>[] parameterTypeTokens = newTokenArray(parameterIndexes.length);
+        LazyView[] lazyViews = new LazyView[parameterIndexes.length];
+        for (int i = 0; i < parameterIndexes.length; i++) {
+            AnnotatedType parameterType = parameters[parameterIndexes[i]].getAnnotatedType();
+            parameterTypeTokens[i] = AnnotatedTypeToken.of(parameterType);
+            lazyViews[i] = lazyArguments ? LazyView.of(parameterType) : null;
+        }
+        AnnotatedType returnType = method.getAnnotatedReturnType();
+        if (!MethodDesensitizationInterceptor.needDesensitized(returnType)) {
+            returnType = null;
+        }
+        return parameterIndexes.length == 0 && returnType == null ? NONE : new MethodDesensitizationPlan(parameterIndexes, parameterTypeTokens, lazyViews, returnType,
+                returnType == null ? null : AnnotatedTypeToken.of(returnType), returnType != null && serializationDesensitization.supports(method),
+                inPlace || AnnotatedElementUtils.hasAnnotation(method, DesensitizeInPlace.class) || InPlaceDesensitization.annotated(method.getDeclaringClass()));
+    }
+
+    /**
+     * 对第{@code i}个需要脱敏的参数进行脱敏，如果该参数可以被延迟脱敏则返回一个延迟脱敏的视图
+     *
+     * @param i        第几个需要脱敏的参数
+     * @param argument 参数
+     * @return 脱敏后的参数
+     */
+    Object desensitizeArgument(int i, Object argument) {
+        LazyView lazyView = lazyViews[i];
+        return lazyView != null && lazyView.applicable(argument) ? lazyView.view(argument) : Sensitive.desensitize(argument, parameterTypeTokens[i]);
+    }
+
+    /**
+     * @return 需要脱敏的参数个数
+     */
+    int parameterCount() {
+        return parameterIndexes.length;
+    }
+
+    /**
+     * @param i 第几个需要脱敏的参数
+     * @return 该参数在方法参数列表中的下标
+     */
+    int parameterIndex(int i) {
+        return parameterIndexes[i];
+    }
+
+    /**
+     * @return 返回值的{@link AnnotatedType}，如果返回值不需要脱敏则为{@code null}
+     */
+    AnnotatedType returnType() {
+        return returnType;
+    }
+
+    /**
+     * @return 返回值的脱敏是否可以延迟到序列化时进行
+     */
+    boolean isReturnValueDeferrable() {
+        return returnValueDeferrable;
+    }
+
+    /**
+     * @return 返回值是否原地脱敏
+     */
+    boolean isInPlace() {
+        return inPlace;
+    }
+
+    /**
+     * 对方法返回值进行脱敏
+     *
+     * @param returnValue 方法返回值
+     * @return 脱敏后的返回值
+     */
+    Object desensitizeReturnValue(Object returnValue) {
+        return returnTypeToken == null ? returnValue : Sensitive.desensitize(returnValue, returnTypeToken);
+    }
+
+    /**
+     * 参数的延迟脱敏视图
+     *
+     * @param kind        视图的种类
+     * @param elementType 需要延迟脱敏的元素的{@link AnnotatedType}
+     */
+    private record LazyView(Kind kind, AnnotatedType elementType) {
+
+        /**
+         * 只有声明类型为{@link List}、{@link Collection}、{@link Iterable}或者键不需要脱敏的{@link Map}，
+         * 并且本身没有标注任何注解的参数才能被延迟脱敏
+         *
+         * @param annotatedType 参数的{@link AnnotatedType}
+         * @return 参数的延迟脱敏视图，如果参数不能被延迟脱敏则返回{@code null}
+         */
+        static LazyView of(AnnotatedType annotatedType) {
+            if (!(annotatedType instanceof AnnotatedParameterizedType annotatedParameterizedType) || annotatedType.getDeclaredAnnotations().length != 0) {
+                return null;
+            }
+            Object rawType = ((ParameterizedType) annotatedParameterizedType.getType()).getRawType();
+            AnnotatedType[] typeArguments = annotatedParameterizedType.getAnnotatedActualTypeArguments();
+            if (rawType == List.class || rawType == Collection.class || rawType == Iterable.class) {
+                return new LazyView(Kind.LIST, typeArguments[0]);
+            }
+            if (rawType == Map.class && !MethodDesensitizationInterceptor.needDesensitized(typeArguments[0])) {
+                return new LazyView(Kind.MAP, typeArguments[1]);
+            }
+            return null;
+        }
+
+        /**
+         * @param argument 参数
+         * @return 该参数是否能够使用延迟脱敏视图
+         */
+        boolean applicable(Object argument) {
+            return kind == Kind.LIST ? argument instanceof List && argument instanceof RandomAccess : argument instanceof Map;
+        }
+
+        /**
+         * 创建参数的延迟脱敏视图，视图会捕获当前{@link DesensitizationContext}的设置
+         *
+         * @param argument 参数
+         * @return 参数的延迟脱敏视图
+         */
+        @SuppressWarnings("unchecked")
+        Object view(Object argument) {
+            DesensitizationContext.Settings settings = DesensitizationContext.capture();
+            return kind == Kind.LIST
+                    ? new LazyDesensitizedList<>((List<Object>) argument, elementType, settings)
+                    : new LazyDesensitizedMap<>((Map<Object, Object>) argument, elementType, settings);
+        }
+
+        private enum Kind {
+            LIST, MAP
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AnnotatedTypeToken<Object>[] newTokenArray(int length) {
+        return (AnnotatedTypeToken<Object>[]) new AnnotatedTypeToken<?>[length];
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationLimits.Limit;
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationLimits.Policy;
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Micrometer的{@link DesensitizationMetrics}，会发布以下指标，所有指标都带有
+ * {@code class}、{@code method}、{@code phase}以及{@code parser}标签：
+ * <ul>
+ *     <li>{@value #DURATION}：脱敏耗时</li>
+ *     <li>{@value #ELEMENTS}：脱敏过程中处理的元素个数</li>
+ *     <li>{@value #CASCADE_DEPTH}：脱敏过程中到达的最大级联深度</li>
+ * </ul>
+ * 其中{@code parser}标签是脱敏过程中实际处理该对象的{@link TypeParser}的类名，该类型解析器由{@link TypeParserRegistry}
+ * 在脱敏时记录，不会为了记录指标再次调用类型解析器的{@link TypeParser#support(Object, java.lang.reflect.AnnotatedType)}方法，
+ * 如果没有任何自定义的类型解析器支持该对象则为{@code default}。
+ * <p>
+ * 此外，超出{@link DesensitizationLimits}中的限制时会增加{@value #LIMIT_EXCEEDED}计数器，
+ * 该计数器带有{@code class}、{@code method}、{@code phase}、{@code limit}以及{@code policy}标签。
+ *
+ * @author zyc
+ */
+public class MicrometerDesensitizationMetrics implements DesensitizationMetrics {
+
+    static final String DURATION = "desensitization.duration";
+    static final String ELEMENTS = "desensitization.elements";
+    static final String CASCADE_DEPTH = "desensitization.cascade.depth";
+    static final String LIMIT_EXCEEDED = "desensitization.limit.exceeded";
+    private static final String DEFAULT_PARSER = "default";
+
+    private final MeterRegistry registry;
+    private final double sampleRate;
+    private final Map<MeterKey, Meters> meters = new ConcurrentHashMap<>();
+    private final Map<LimitKey, Counter> limitCounters = new ConcurrentHashMap<>();
+
+    public MicrometerDesensitizationMetrics(MeterRegistry registry, double sampleRate) {
+        this.registry = registry;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public boolean sample() {
+        return sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    @Override
+    public void record(Method method, Phase phase, Class<?> parser, long nanos, long elements, int depth) {
+        Meters methodMeters = meters.computeIfAbsent(new MeterKey(method, phase, parser == null ? DEFAULT_PARSER : parser.getSimpleName()), this::register);
+        methodMeters.duration().record(nanos, TimeUnit.NANOSECONDS);
+        methodMeters.elements().record(elements);
+        methodMeters.cascadeDepth().record(depth);
+    }
+
+    @Override
+    public void limitExceeded(Method method, Phase phase, Limit limit, Policy policy) {
+        limitCounters.computeIfAbsent(new LimitKey(method, phase, limit, policy), key -> Counter.builder(LIMIT_EXCEEDED)
+                .description("Number of times a desensitization limit was exceeded")
+                .tags(Tags.of("class", key.method().getDeclaringClass().getName(),
+                        "method", key.method().getName(),
+                        "phase", tagValue(key.phase()),
+                        "limit", tagValue(key.limit()),
+                        "policy", tagValue(key.policy())))
+                .register(registry)).increment();
+    }
+
+    private Meters register(MeterKey key) {
+        Tags tags = Tags.of("class", key.method().getDeclaringClass().getName(),
+                "method", key.method().getName(),
+                "phase", tagValue(key.phase()),
+                "parser", key.parser());
+        return new Meters(Timer.builder(DURATION).description("Time spent desensitizing method arguments or return values").tags(tags).register(registry),
+                DistributionSummary.builder(ELEMENTS).description("Number of elements processed while desensitizing").tags(tags).register(registry),
+                DistributionSummary.builder(CASCADE_DEPTH).description("Maximum cascade depth reached while desensitizing").tags(tags).register(registry));
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase().replace('_', '-');
+    }
+
+    private record MeterKey(Method method, Phase phase, String parser) {
+    }
+
+    private record LimitKey(Method method, Phase phase, Limit limit, Policy policy) {
+    }
+
+    private record Meters(Timer duration, DistributionSummary elements, DistributionSummary cascadeDepth) {
+    }
+}
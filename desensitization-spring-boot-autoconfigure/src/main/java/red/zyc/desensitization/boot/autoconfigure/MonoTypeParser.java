@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import reactor.core.publisher.Mono;
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+
+/**
+ * 用来解析返回值类型为{@link Mono}的类型解析器，脱敏会在元素发出时进行。
+ * 超出限制时被{@link DesensitizationLimits.Policy#MASK}掩盖为{@code null}的元素会使{@link Mono}变为空。
+ *
+ * @author zyc
+ */
+public class MonoTypeParser implements TypeParser<Mono<Object>, AnnotatedParameterizedType> {
+
+    @Override
+    public Mono<Object> parse(Mono<Object> mono, AnnotatedParameterizedType annotatedParameterizedType) {
+        AnnotatedType typeArgument = annotatedParameterizedType.getAnnotatedActualTypeArguments()[0];
+        DesensitizationContext.Settings settings = DesensitizationContext.capture();
+        return mono.mapNotNull(element -> settings.parse(element, typeArgument));
+    }
+
+    @Override
+    public boolean support(Object value, AnnotatedType annotatedType) {
+        return value instanceof Mono && annotatedType instanceof AnnotatedParameterizedType;
+    }
+
+    @Override
+    public int order() {
+        return TypeParserOrders.CONTAINER;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import red.zyc.desensitization.Sensitive;
+import red.zyc.parser.type.AnnotatedTypeToken;
+import red.zyc.parser.type.Cascade;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 对没有声明类型的对象（例如日志参数）进行脱敏。由于这类对象不存在可以标注脱敏注解的声明，只有其类中声明了需要脱敏的字段时
+ * 才会被当作{@link Cascade}对象级联脱敏，其它对象原样返回。每个类是否需要脱敏只会在第一次遇到时计算一次，之后直接复用。
+ * <p>
+ * 集合、{@link Map}、{@link Optional}以及对象数组本身不会被当作{@link Cascade}对象，而是逐个脱敏其中的元素，包括嵌套的容器。
+ * 只要有元素被脱敏，就会返回一个包含脱敏后元素的新容器：{@link java.util.List}以及其它集合为{@link ArrayList}，
+ * {@link Set}为{@link LinkedHashSet}，{@link Map}为{@link LinkedHashMap}，数组的元素类型保持不变，它们的字符串形式与原容器一致。
+ * 没有任何元素需要脱敏时返回原容器，引用了自身的容器不会被重复遍历。
+ *
+ * @author zyc
+ */
+public final class ObjectDesensitization {
+
+    private static final AnnotatedTypeToken<Object> CASCADE = new AnnotatedTypeToken<@Cascade Object>() {
+    };
+
+    /**
+     * 类中是否声明了需要脱敏的字段
+     */
+    private static final ClassValue<Boolean> DESENSITIZABLE = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> c = type; c != null && c != Object.class && !c.getName().startsWith("java."); c = c.getSuperclass()) {
+                if (Arrays.stream(c.getDeclaredFields())
+                        .filter(field -> !Modifier.isStatic(field.getModifiers()))
+                        .map(Field::getAnnotatedType)
+                        .anyMatch(MethodDesensitizationInterceptor::needDesensitized)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    };
+
+    private ObjectDesensitization() {
+    }
+
+    /**
+     * @param value 对象
+     * @return 该对象的类中是否声明了需要脱敏的字段，不会检查容器中的元素
+     */
+    public static boolean needDesensitized(Object value) {
+        return value != null && DESENSITIZABLE.get(value.getClass());
+    }
+
+    /**
+     * @param value 对象
+     * @return 脱敏后的对象，如果对象以及其中的元素都不需要脱敏则返回原对象
+     */
+    public static Object desensitize(Object value) {
+        return desensitize(value, null);
+    }
+
+    /**
+     * 对数组中的每个对象进行脱敏
+     *
+     * @param values 对象数组
+     * @return 脱敏后的对象数组，如果数组中没有需要脱敏的对象则返回原数组，否则返回一个新数组
+     */
+    public static Object[] desensitize(Object[] values) {
+        return values == null ? null : desensitize(values, null);
+    }
+
+    /**
+     * @param value 对象
+     * @param path  当前正在被遍历的容器，第一次遇到容器时才会创建
+     * @return 脱敏后的对象
+     */
+    private static Object desensitize(Object value, Set<Object> path) {
+        if (value == null) {
+            return null;
+        }
+        if (DESENSITIZABLE.get(value.getClass())) {
+            return Sensitive.desensitize(value, CASCADE);
+        }
+        if (!(value instanceof Object[]) && !(value instanceof Collection<?>) && !(value instanceof Map<?, ?>) && !(value instanceof Optional<?>)) {
+            return value;
+        }
+        if (path == null) {
+            path = Collections.newSetFromMap(new IdentityHashMap<>());
+        }
+        if (value instanceof Object[] array) {
+            return desensitize(array, path);
+        }
+        if (!path.add(value)) {
+            return value;
+        }
+        try {
+            if (value instanceof Optional<?> optional) {
+                Object element = optional.orElse(null);
+                Object desensitized = desensitize(element, path);
+                return desensitized == element ? value : Optional.of(desensitized);
+            }
+            if (value instanceof Map<?, ?> map) {
+                Map<Object, Object> desensitized = new LinkedHashMap<>();
+                boolean changed = false;
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    Object key = desensitize(entry.getKey(), path);
+                    Object element = desensitize(entry.getValue(), path);
+                    changed |= key != entry.getKey() || element != entry.getValue();
+                    desensitized.put(key, element);
+                }
+                return changed ? desensitized : value;
+            }
+            Collection<Object> desensitized = value instanceof Set<?> ? new LinkedHashSet<>() : new ArrayList<>();
+            boolean changed = false;
+            for (Object element : (Collection<?>) value) {
+                Object result = desensitize(element, path);
+                changed |= result != element;
+                desensitized.add(result);
+            }
+            return changed ? desensitized : value;
+        } finally {
+            path.remove(value);
+        }
+    }
+
+    /**
+     * @param values 对象数组
+     * @param path   当前正在被遍历的容器，为{@code null}时表示最外层的数组，例如日志参数
+     * @return 脱敏后的对象数组
+     */
+    private static Object[] desensitize(Object[] values, Set<Object> path) {
+        if (path != null && !path.add(values)) {
+            return values;
+        }
+        try {
+            Object[] desensitized = values;
+            for (int i = 0; i < values.length; i++) {
+                Object result = desensitize(values[i], path);
+                if (result != values[i]) {
+                    if (desensitized == values) {
+                        desensitized = values.clone();
+                    }
+                    if (result != null && !desensitized.getClass().getComponentType().isInstance(result)) {
+                        desensitized = Arrays.copyOf(desensitized, desensitized.length, Object[].class);
+                    }
+                    desensitized[i] = result;
+                }
+            }
+            return desensitized;
+        } finally {
+            if (path != null) {
+                path.remove(values);
+            }
+        }
+    }
+}
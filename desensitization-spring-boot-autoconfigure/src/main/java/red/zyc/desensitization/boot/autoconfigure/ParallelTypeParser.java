@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.beans.factory.DisposableBean;
+import red.zyc.parser.AnnotationParser;
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.reflect.AnnotatedArrayType;
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 并行脱敏大集合、数组以及{@link Map}的类型解析器。当元素个数达到{@link #threshold 阈值}时，
+ * 元素会被切分成若干段交给{@link #executor}并行脱敏，脱敏后的元素按照原来的顺序组装成一个
+ * 与原对象类型相同的新对象，因此脱敏结果与顺序脱敏完全一致。对于没有无参构造器的集合以及{@link Map}，
+ * 该解析器不会生效，仍然由内置的类型解析器顺序脱敏。
+ * <p>
+ * 每一段元素都在一个以当前{@link DesensitizationContext}的设置创建的子上下文中脱敏，因此级联脱敏、批量脱敏以及结果缓存
+ * 在并行脱敏的线程中同样生效，子上下文处理的元素个数会在所有段完成之后合并到当前上下文中。
+ * 由于子上下文之间无法共享元素个数、已经被级联脱敏过的对象以及原地修改的对象，以下情况该解析器不会生效：
+ * 配置了{@link DesensitizationLimits}；{@link DesensitizeInPlace 原地脱敏}；正在级联脱敏某个对象，
+ * 即该集合、数组或者Map是某个对象的字段，此时它的元素可能引用正在被级联脱敏的对象。
+ *
+ * @author zyc
+ */
+public class ParallelTypeParser implements TypeParser<Object, AnnotatedType>, DisposableBean {
+
+    /**
+     * 并行脱敏的元素个数阈值
+     */
+    private final int threshold;
+
+    /**
+     * 元素被切分成的段数
+     */
+    private final int parallelism;
+
+    /**
+     * 执行并行脱敏任务的线程池
+     */
+    private final ExecutorService executor;
+
+    public ParallelTypeParser(int threshold, int parallelism, ExecutorService executor) {
+        this.threshold = threshold;
+        this.parallelism = parallelism;
+        this.executor = executor;
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Object parse(Object value, AnnotatedType annotatedType) {
+        if (value instanceof Collection<?> collection) {
+            AnnotatedType elementType = ((AnnotatedParameterizedType) annotatedType).getAnnotatedActualTypeArguments()[0];
+            Object[] elements = parallelParse(collection.toArray(), elementType);
+            Collection result = (Collection) Containers.newInstance(value.getClass());
+            for (Object element : elements) {
+                result.add(element);
+            }
+            return result;
+        }
+        if (value instanceof Map<?, ?> map) {
+            AnnotatedType[] typeArguments = ((AnnotatedParameterizedType) annotatedType).getAnnotatedActualTypeArguments();
+            Object[] keys = new Object[map.size()];
+            Object[] values = new Object[map.size()];
+            int i = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                keys[i] = entry.getKey();
+                values[i++] = entry.getValue();
+            }
+            keys = parallelParse(keys, typeArguments[0]);
+            values = parallelParse(values, typeArguments[1]);
+            Map result = (Map) Containers.newInstance(value.getClass());
+            for (int j = 0; j < keys.length; j++) {
+                result.put(keys[j], values[j]);
+            }
+            return result;
+        }
+        Object[] array = (Object[]) value;
+        Object[] elements = parallelParse(array, ((AnnotatedArrayType) annotatedType).getAnnotatedGenericComponentType());
+        Object[] result = (Object[]) Array.newInstance(array.getClass().getComponentType(), elements.length);
+        System.arraycopy(elements, 0, result, 0, elements.length);
+        return result;
+    }
+
+    @Override
+    public boolean support(Object value, AnnotatedType annotatedType) {
+        DesensitizationContext context = DesensitizationContext.current();
+        if (context != null && (context.isLimited() || context.isInPlace() || context.isCascading())) {
+            return false;
+        }
+        if (value instanceof Collection<?> collection) {
+            return collection.size() >= threshold && annotatedType instanceof AnnotatedParameterizedType && Containers.instantiable(value.getClass());
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.size() >= threshold && annotatedType instanceof AnnotatedParameterizedType && Containers.instantiable(value.getClass());
+        }
+        return value instanceof Object[] array && array.length >= threshold && annotatedType instanceof AnnotatedArrayType;
+    }
+
+    @Override
+    public int order() {
+        return TypeParserOrders.PARALLEL;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * 将元素切分成若干段并行脱敏
+     *
+     * @param elements    需要脱敏的元素
+     * @param elementType 元素的{@link AnnotatedType}
+     * @return 与原元素顺序一致的脱敏后的元素
+     */
+    private Object[] parallelParse(Object[] elements, AnnotatedType elementType) {
+        DesensitizationContext context = DesensitizationContext.current();
+        DesensitizationContext.Settings settings = DesensitizationContext.capture();
+        Object[] result = new Object[elements.length];
+        int segments = Math.min(parallelism, elements.length);
+        int segmentSize = (elements.length + segments - 1) / segments;
+        DesensitizationContext[] children = new DesensitizationContext[segments];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[segments];
+        for (int i = 0; i < segments; i++) {
+            int segment = i;
+            int from = i * segmentSize;
+            int to = Math.min(from + segmentSize, elements.length);
+            futures[i] = CompletableFuture.runAsync(() -> {
+                DesensitizationContext child = settings.open();
+                try {
+                    for (int j = from; j < to; j++) {
+                        result[j] = AnnotationParser.parse(elements[j], elementType);
+                    }
+                } finally {
+                    if (child != null) {
+                        child.close();
+                        children[segment] = child;
+                    }
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+        }
+        if (context != null) {
+            for (DesensitizationContext child : children) {
+                context.merge(child);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.ParameterizedType;
+
+/**
+ * 用来解析返回值类型为{@link Publisher}的类型解析器，每个元素都会在发出时被脱敏。
+ * 由于脱敏后的对象是一个{@link Flux}，因此该解析器只解析声明类型恰好是{@link Publisher}的对象。
+ * 超出限制时被{@link DesensitizationLimits.Policy#MASK}掩盖为{@code null}的元素会从流中移除。
+ *
+ * @author zyc
+ * @see MonoTypeParser
+ * @see FluxTypeParser
+ */
+public class PublisherTypeParser implements TypeParser<Publisher<Object>, AnnotatedParameterizedType> {
+
+    @Override
+    public Publisher<Object> parse(Publisher<Object> publisher, AnnotatedParameterizedType annotatedParameterizedType) {
+        AnnotatedType typeArgument = annotatedParameterizedType.getAnnotatedActualTypeArguments()[0];
+        DesensitizationContext.Settings settings = DesensitizationContext.capture();
+        return Flux.from(publisher).mapNotNull(element -> settings.parse(element, typeArgument));
+    }
+
+    @Override
+    public boolean support(Object value, AnnotatedType annotatedType) {
+        return value instanceof Publisher
+                && annotatedType instanceof AnnotatedParameterizedType annotatedParameterizedType
+                && ((ParameterizedType) annotatedParameterizedType.getType()).getRawType() == Publisher.class;
+    }
+
+    @Override
+    public int order() {
+        return TypeParserOrders.CONTAINER;
+    }
+}
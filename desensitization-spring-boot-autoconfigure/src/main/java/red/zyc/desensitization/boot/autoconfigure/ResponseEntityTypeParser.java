@@ -30,8 +30,6 @@ import java.lang.reflect.AnnotatedType;
  */
 public class ResponseEntityTypeParser implements TypeParser<ResponseEntity<Object>, AnnotatedParameterizedType> {
 
-    private final int order = AnnotationParser.randomOrder();
-
     @Override
     public ResponseEntity<Object> parse(ResponseEntity<Object> responseEntity, AnnotatedParameterizedType annotatedParameterizedType) {
         AnnotatedType typeArgument = annotatedParameterizedType.getAnnotatedActualTypeArguments()[0];
@@ -46,6 +44,6 @@ public class ResponseEntityTypeParser implements TypeParser<ResponseEntity<Objec
 
     @Override
     public int order() {
-        return order;
+        return TypeParserOrders.CONTAINER;
     }
 }
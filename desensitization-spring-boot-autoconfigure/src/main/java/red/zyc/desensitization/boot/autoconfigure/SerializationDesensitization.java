@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import java.lang.reflect.Method;
+
+/**
+ * 将方法返回值的脱敏延迟到序列化时进行的策略。对于那些由该策略负责的方法，
+ * {@link MethodDesensitizationInterceptor}不会在方法返回时重新构造一个脱敏后的返回值，
+ * 而是由序列化器在写出数据的同时进行脱敏。
+ *
+ * @author zyc
+ */
+public interface SerializationDesensitization {
+
+    /**
+     * 不延迟任何方法返回值的脱敏
+     */
+    SerializationDesensitization NONE = new SerializationDesensitization() {
+
+        @Override
+        public boolean supports(Method method) {
+            return false;
+        }
+
+        @Override
+        public boolean defer(Method method) {
+            return false;
+        }
+    };
+
+    /**
+     * 在构造{@link MethodDesensitizationPlan 方法的脱敏计划}时调用，判断该方法的返回值是否可以在序列化时脱敏
+     *
+     * @param method 方法
+     * @return 该方法的返回值是否可以在序列化时脱敏
+     */
+    boolean supports(Method method);
+
+    /**
+     * 在方法返回时调用，判断本次调用的返回值是否会在序列化时脱敏。只有返回{@code true}时拦截器才会跳过返回值的脱敏，
+     * 因此实现类必须保证返回{@code true}之后该返回值一定会在序列化时被脱敏。
+     *
+     * @param method 方法
+     * @return 本次调用的返回值是否会在序列化时脱敏
+     */
+    boolean defer(Method method);
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import red.zyc.parser.AnnotationParser;
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+
+/**
+ * 用来解析返回值类型为spring-data的{@link Slice}以及{@link Page}的类型解析器，只会脱敏其中的内容，
+ * 分页信息（例如{@link Slice#getPageable()}、{@link Page#getTotalElements()}）保持不变。
+ * {@link Page}通过{@link Page#map(java.util.function.Function)}脱敏，因此返回的仍然是{@link Page}。
+ *
+ * @author zyc
+ */
+public class SliceTypeParser implements TypeParser<Slice<Object>, AnnotatedParameterizedType> {
+
+    @Override
+    public Slice<Object> parse(Slice<Object> slice, AnnotatedParameterizedType annotatedParameterizedType) {
+        AnnotatedType typeArgument = annotatedParameterizedType.getAnnotatedActualTypeArguments()[0];
+        return slice.map(element -> AnnotationParser.parse(element, typeArgument));
+    }
+
+    @Override
+    public boolean support(Object value, AnnotatedType annotatedType) {
+        return value instanceof Slice && annotatedType instanceof AnnotatedParameterizedType;
+    }
+
+    @Override
+    public int order() {
+        return TypeParserOrders.CONTAINER;
+    }
+}
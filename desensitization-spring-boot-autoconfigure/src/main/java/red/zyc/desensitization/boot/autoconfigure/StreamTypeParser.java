@@ -0,0 +1,52 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.util.stream.Stream;
+
+/**
+ * 用来解析返回值类型为{@link Stream}的类型解析器，脱敏会作为{@link Stream#map(java.util.function.Function)}阶段在元素被消费时进行，
+ * 不会预先将整个流收集到内存中，因此导出海量数据时内存占用保持不变。原流的关闭回调会被保留。
+ * <p>
+ * 由于元素在方法返回之后才被消费，{@link DesensitizationLimits}中的限制对流中的每个元素单独生效，
+ * 而不是限制整个流，见{@link DesensitizationContext.Settings}。
+ *
+ * @author zyc
+ */
+public class StreamTypeParser implements TypeParser<Stream<Object>, AnnotatedParameterizedType> {
+
+    @Override
+    public Stream<Object> parse(Stream<Object> stream, AnnotatedParameterizedType annotatedParameterizedType) {
+        AnnotatedType typeArgument = annotatedParameterizedType.getAnnotatedActualTypeArguments()[0];
+        DesensitizationContext.Settings settings = DesensitizationContext.capture();
+        return stream.map(element -> settings.parse(element, typeArgument));
+    }
+
+    @Override
+    public boolean support(Object value, AnnotatedType annotatedType) {
+        return value instanceof Stream && annotatedType instanceof AnnotatedParameterizedType;
+    }
+
+    @Override
+    public int order() {
+        return TypeParserOrders.CONTAINER;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import red.zyc.parser.AnnotationParser;
+import red.zyc.parser.type.TypeParser;
+
+/**
+ * 本项目提供的类型解析器的{@link TypeParser#order() 顺序}。同一个spring上下文中的所有类型解析器会由{@link TypeParserRegistry}
+ * 按照顺序从小到大排列，顺序相同时按照bean的注册顺序排列，因此这些类型解析器之间以及它们与通过{@link AnnotationParser#randomOrder()}
+ * 指定顺序的自定义类型解析器之间的先后关系在每次启动时都是固定的：
+ * <ol>
+ *     <li>{@link #CASCADE}：{@link CascadeTypeParser}需要最先看到每一个对象，以便统计元素个数、检查限制并认领需要特殊处理的对象</li>
+ *     <li>{@link #PARALLEL}：{@link ParallelTypeParser}只处理{@link CascadeTypeParser}没有认领的大集合、数组以及Map</li>
+ *     <li>自定义类型解析器</li>
+ *     <li>{@link #CONTAINER}：{@link ResponseEntityTypeParser}、异步以及响应式类型等容器的类型解析器，它们支持的对象类型互不相交，
+ *     排在自定义类型解析器之后，以便自定义类型解析器可以覆盖它们</li>
+ *     <li>{@link #GENERATED}：{@link GeneratedCascadeTypeParser}，只在没有脱敏上下文时才会生效</li>
+ * </ol>
+ *
+ * @author zyc
+ */
+public final class TypeParserOrders {
+
+    /**
+     * {@link CascadeTypeParser}的顺序
+     */
+    public static final int CASCADE = Integer.MIN_VALUE;
+
+    /**
+     * {@link ParallelTypeParser}的顺序
+     */
+    public static final int PARALLEL = Integer.MIN_VALUE + 1;
+
+    /**
+     * 容器类型的类型解析器的顺序
+     */
+    public static final int CONTAINER = Integer.MAX_VALUE - 1;
+
+    /**
+     * {@link GeneratedCascadeTypeParser}的顺序
+     */
+    public static final int GENERATED = Integer.MAX_VALUE;
+
+    private TypeParserOrders() {
+    }
+}
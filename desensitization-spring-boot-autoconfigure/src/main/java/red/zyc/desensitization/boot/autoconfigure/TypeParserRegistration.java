@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import red.zyc.parser.type.TypeParser;
+
+/**
+ * 在所有单例bean初始化完成之后将当前spring上下文中的所有{@link TypeParser}以当前spring上下文的{@link BeanFactory}
+ * 作为所有者登记到{@link TypeParserRegistry}中，并在spring上下文关闭时移除，因此重启或者刷新后的spring上下文不会残留之前的类型解析器。
+ *
+ * @author zyc
+ */
+class TypeParserRegistration implements SmartInitializingSingleton, DisposableBean {
+
+    private final BeanFactory beanFactory;
+
+    private final ObjectProvider<TypeParser<?, ?>> typeParsers;
+
+    TypeParserRegistration(BeanFactory beanFactory, ObjectProvider<TypeParser<?, ?>> typeParsers) {
+        this.beanFactory = beanFactory;
+        this.typeParsers = typeParsers;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        TypeParserRegistry.INSTANCE.register(beanFactory, typeParsers.stream().toList());
+    }
+
+    @Override
+    public void destroy() {
+        TypeParserRegistry.INSTANCE.unregister(beanFactory);
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import red.zyc.parser.AnnotationParser;
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.reflect.AnnotatedType;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 将spring上下文中的所有{@link TypeParser}作为一个整体注册到{@link AnnotationParser}中的类型解析器。
+ * 每个类型解析器会按照其泛型声明的对象类型以及{@link AnnotatedType}类型建立索引，对于一个对象只会按照原来的顺序
+ * 调用那些泛型声明与该对象的类型以及{@link AnnotatedType}的类型匹配的类型解析器的{@link TypeParser#support(Object, AnnotatedType)}方法，
+ * 匹配结果按照（对象类型，{@link AnnotatedType}类型）缓存，从而避免了对所有类型解析器的线性扫描。
+ * 类型解析器按照{@link TypeParser#order()}从小到大排列，顺序相同时保持登记时的顺序，本项目提供的类型解析器的顺序见{@link TypeParserOrders}。
+ * <p>
+ * {@link AnnotationParser}是全局的并且不支持移除类型解析器，所以整个JVM中只有{@link #INSTANCE}这一个实例会被注册到{@link AnnotationParser}中，
+ * 每个spring上下文通过{@link #register(Object, Collection)}登记自己的类型解析器，并在关闭时通过{@link #unregister(Object)}移除。
+ * 不同spring上下文登记的类型解析器互相隔离：解析时只会使用当前{@link DesensitizationContext#owner() 脱敏上下文所属的spring上下文}
+ * 登记的类型解析器，没有脱敏上下文（例如直接调用{@link red.zyc.desensitization.Sensitive}）或者脱敏上下文没有指定所属的spring上下文时，
+ * 使用{@link Snapshot#defaultRegistration() 默认的登记}，即仍然存在的所有者中最近登记的那一个。默认的登记在登记或者移除时确定，
+ * 最近登记的所有者被移除后会回退到在它之前登记的所有者。
+ * 所有登记的类型解析器、默认的登记以及匹配结果的缓存都保存在一个不可变的快照中，登记或者移除时通过CAS原子地替换整个快照，
+ * 因此解析时只需要读取一次快照，不需要任何锁。
+ * <p>
+ * {@link #support(Object, AnnotatedType)}找到的类型解析器会暂存在当前线程中，紧接着的{@link #parse(Object, AnnotatedType)}
+ * 直接使用该类型解析器进行解析，为被脱敏的对象本身找到的类型解析器还会被记录在{@link DesensitizationContext}中，供{@link DesensitizationMetrics}使用。
+ * 批量脱敏时可以通过{@link #candidates(Class, AnnotatedType)}一次性获取候选的类型解析器并直接调用，
+ * 没有候选的类型解析器支持的对象再通过{@link #parseUnclaimed(Object, AnnotatedType)}交由{@link AnnotationParser}处理。
+ * 认领了对象却不需要亲自处理的类型解析器可以通过{@link #parseNext(TypeParser, Object, AnnotatedType)}将对象交给排在其后的类型解析器。
+ *
+ * @author zyc
+ * @see TypeParserRegistration
+ */
+final class TypeParserRegistry implements TypeParser<Object, AnnotatedType> {
+
+    static final TypeParserRegistry INSTANCE = new TypeParserRegistry();
+
+    /**
+     * {@link #support(Object, AnnotatedType)}找到的类型解析器
+     */
+    private static final ThreadLocal<TypeParser<Object, AnnotatedType>> RESOLVED = new ThreadLocal<>();
+
+    /**
+     * 已经由调用方检查过候选的类型解析器，{@link #support(Object, AnnotatedType)}需要直接跳过的对象
+     */
+    private static final ThreadLocal<Object> UNCLAIMED = new ThreadLocal<>();
+
+    private static final IndexedTypeParser[] NO_CANDIDATES = new IndexedTypeParser[0];
+
+    /**
+     * 是否已经注册到{@link AnnotationParser}中
+     */
+    private final AtomicBoolean installed = new AtomicBoolean();
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+
+    private TypeParserRegistry() {
+    }
+
+    /**
+     * 登记类型解析器，同一个所有者再次登记时会替换之前登记的类型解析器，并成为最近登记的所有者
+     *
+     * @param owner       类型解析器的所有者，通常是spring上下文
+     * @param typeParsers 类型解析器
+     */
+    void register(Object owner, Collection<? extends TypeParser<?, ?>> typeParsers) {
+        Registration registration = Registration.of(typeParsers);
+        update(current -> {
+            current.remove(owner);
+            current.put(owner, registration);
+        });
+        if (installed.compareAndSet(false, true)) {
+            AnnotationParser.addTypeParser(this);
+        }
+    }
+
+    /**
+     * 移除所有者登记的所有类型解析器
+     *
+     * @param owner 类型解析器的所有者
+     */
+    void unregister(Object owner) {
+        update(current -> current.remove(owner));
+    }
+
+    private void update(Consumer<Map<Object, Registration>> modification) {
+        Snapshot current;
+        Snapshot next;
+        do {
+            current = snapshot.get();
+            Map<Object, Registration> registrations = new LinkedHashMap<>(current.registrations());
+            modification.accept(registrations);
+            next = Snapshot.of(registrations);
+        } while (!snapshot.compareAndSet(current, next));
+    }
+
+    /**
+     * @param owner 所有者，{@code null}表示使用默认的登记
+     * @return 所有者登记的类型解析器，如果该所有者没有登记或者已经被移除则返回{@code null}
+     */
+    private Registration registration(Object owner) {
+        Snapshot current = snapshot.get();
+        return owner == null ? current.defaultRegistration() : current.registrations().get(owner);
+    }
+
+    @Override
+    public Object parse(Object value, AnnotatedType annotatedType) {
+        TypeParser<Object, AnnotatedType> typeParser = RESOLVED.get();
+        RESOLVED.remove();
+        return typeParser.parse(value, annotatedType);
+    }
+
+    /**
+     * @param valueType     对象类型
+     * @param annotatedType 对象的{@link AnnotatedType}
+     * @return 当前脱敏上下文所属的spring上下文登记的、可能支持该类型对象的类型解析器，按照顺序排列
+     */
+    List<TypeParser<Object, AnnotatedType>> candidates(Class<?> valueType, AnnotatedType annotatedType) {
+        DesensitizationContext context = DesensitizationContext.current();
+        return Arrays.stream(indexedCandidates(registration(context == null ? null : context.owner()), valueType, annotatedType))
+                .map(IndexedTypeParser::typeParser)
+                .toList();
+    }
+
+    /**
+     * 使用排在指定类型解析器之后的候选类型解析器解析对象，都不支持该对象时通过{@link #parseUnclaimed(Object, AnnotatedType)}
+     * 交由{@link AnnotationParser}处理。用于认领了对象却不需要亲自处理的类型解析器，例如{@link CascadeTypeParser}。
+     *
+     * @param typeParser    认领了该对象的类型解析器
+     * @param value         对象
+     * @param annotatedType 对象的{@link AnnotatedType}
+     * @return 解析后的对象
+     */
+    Object parseNext(TypeParser<?, ?> typeParser, Object value, AnnotatedType annotatedType) {
+        DesensitizationContext context = DesensitizationContext.current();
+        boolean next = false;
+        for (IndexedTypeParser indexedTypeParser : indexedCandidates(registration(context == null ? null : context.owner()), value.getClass(), annotatedType)) {
+            if (next && indexedTypeParser.typeParser().support(value, annotatedType)) {
+                resolved(context, indexedTypeParser.typeParser());
+                return indexedTypeParser.typeParser().parse(value, annotatedType);
+            }
+            next |= indexedTypeParser.typeParser() == typeParser;
+        }
+        resolved(context, null);
+        return parseUnclaimed(value, annotatedType);
+    }
+
+    /**
+     * @param registration  所有者登记的类型解析器
+     * @param valueType     对象类型，{@code null}对应{@link Void}
+     * @param annotatedType 对象的{@link AnnotatedType}
+     * @return 可能支持该对象的类型解析器，按照顺序排列
+     */
+    private static IndexedTypeParser[] indexedCandidates(Registration registration, Class<?> valueType, AnnotatedType annotatedType) {
+        if (registration == null) {
+            return NO_CANDIDATES;
+        }
+        Key key = new Key(valueType, annotatedType.getClass());
+        IndexedTypeParser[] indexedTypeParsers = registration.candidates().get(key);
+        return indexedTypeParsers != null ? indexedTypeParsers : registration.candidates().computeIfAbsent(key, registration::candidates);
+    }
+
+    /**
+     * 使用{@link AnnotationParser}解析一个已经检查过{@link #candidates(Class, AnnotatedType) 候选的类型解析器}却没有被支持的对象，
+     * 解析该对象本身时不会再次检查登记的类型解析器，但其内部的元素仍然会正常匹配
+     *
+     * @param value         对象
+     * @param annotatedType 对象的{@link AnnotatedType}
+     * @param <T>           对象的类型
+     * @return 解析后的对象
+     */
+    <T> T parseUnclaimed(T value, AnnotatedType annotatedType) {
+        UNCLAIMED.set(value);
+        try {
+            return AnnotationParser.parse(value, annotatedType);
+        } finally {
+            UNCLAIMED.remove();
+        }
+    }
+
+    @Override
+    public boolean support(Object value, AnnotatedType annotatedType) {
+        if (value != null && UNCLAIMED.get() == value) {
+            UNCLAIMED.remove();
+            return false;
+        }
+        DesensitizationContext context = DesensitizationContext.current();
+        for (IndexedTypeParser indexedTypeParser : indexedCandidates(registration(context == null ? null : context.owner()), value == null ? Void.class : value.getClass(), annotatedType)) {
+            if (indexedTypeParser.typeParser().support(value, annotatedType)) {
+                RESOLVED.set(indexedTypeParser.typeParser());
+                resolved(context, indexedTypeParser.typeParser());
+                return true;
+            }
+        }
+        resolved(context, null);
+        return false;
+    }
+
+    /**
+     * 记录为被脱敏的对象找到的类型解析器。{@link CascadeTypeParser}认领上下文中的所有对象，
+     * 由它自己记录实际处理该对象的类型解析器。
+     *
+     * @param context    当前的上下文
+     * @param typeParser 找到的类型解析器，没有找到时为{@code null}
+     */
+    private static void resolved(DesensitizationContext context, TypeParser<?, ?> typeParser) {
+        if (context != null && !(typeParser instanceof CascadeTypeParser)) {
+            context.resolved(typeParser == null ? null : typeParser.getClass());
+        }
+    }
+
+    /**
+     * 排在所有内置类型解析器之前，与逐个注册到{@link AnnotationParser}中的自定义类型解析器一样，
+     * 登记的类型解析器之间则按照各自的{@link TypeParser#order()}排列
+     *
+     * @return 最高的顺序
+     * @see TypeParserOrders
+     */
+    @Override
+    public int order() {
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * 某一时刻所有登记的类型解析器
+     *
+     * @param registrations       所有者与其登记的类型解析器的映射，按照登记的先后顺序排列
+     * @param defaultRegistration 没有指定所有者时使用的登记，即最近登记的所有者的类型解析器，没有任何登记时为{@code null}
+     */
+    private record Snapshot(Map<Object, Registration> registrations, Registration defaultRegistration) {
+
+        static final Snapshot EMPTY = new Snapshot(Map.of(), null);
+
+        static Snapshot of(Map<Object, Registration> registrations) {
+            Registration latest = null;
+            for (Registration registration : registrations.values()) {
+                latest = registration;
+            }
+            return new Snapshot(Collections.unmodifiableMap(registrations), latest);
+        }
+    }
+
+    /**
+     * 一个所有者登记的所有类型解析器，创建之后不会再被修改，只有匹配结果的缓存会随着解析逐渐填充
+     *
+     * @param typeParsers 按照顺序排列的类型解析器
+     * @param candidates  （对象类型，{@link AnnotatedType}类型）与可能支持该对象的类型解析器的映射
+     */
+    private record Registration(IndexedTypeParser[] typeParsers, Map<Key, IndexedTypeParser[]> candidates) {
+
+        static Registration of(Collection<? extends TypeParser<?, ?>> typeParsers) {
+            IndexedTypeParser[] indexedTypeParsers = typeParsers.stream()
+                    .map(IndexedTypeParser::of)
+                    .sorted(Comparator.comparingInt(indexedTypeParser -> indexedTypeParser.typeParser().order()))
+                    .toArray(IndexedTypeParser[]::new);
+            return new Registration(indexedTypeParsers, new ConcurrentReferenceHashMap<>());
+        }
+
+        IndexedTypeParser[] candidates(Key key) {
+            return Arrays.stream(typeParsers)
+                    .filter(indexedTypeParser -> key.valueType() == Void.class
+                            ? indexedTypeParser.valueType() == Object.class
+                            : indexedTypeParser.valueType().isAssignableFrom(key.valueType()))
+                    .filter(indexedTypeParser -> indexedTypeParser.annotatedType().isAssignableFrom(key.annotatedType()))
+                    .toArray(IndexedTypeParser[]::new);
+        }
+    }
+
+    /**
+     * @param valueType     对象类型，{@code null}对应{@link Void}
+     * @param annotatedType {@link AnnotatedType}的实现类
+     */
+    private record Key(Class<?> valueType, Class<?> annotatedType) {
+    }
+
+    /**
+     * @param typeParser    类型解析器
+     * @param valueType     类型解析器泛型声明的对象类型
+     * @param annotatedType 类型解析器泛型声明的{@link AnnotatedType}类型
+     */
+    private record IndexedTypeParser(TypeParser<Object, AnnotatedType> typeParser, Class<?> valueType, Class<?> annotatedType) {
+
+        @SuppressWarnings("unchecked")
+        static IndexedTypeParser of(TypeParser<?, ?> typeParser) {
+            ResolvableType type = ResolvableType.forClass(typeParser.getClass()).as(TypeParser.class);
+            return new IndexedTypeParser((TypeParser<Object, AnnotatedType>) typeParser,
+                    type.getGeneric(0).resolve(Object.class), type.getGeneric(1).resolve(AnnotatedType.class));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * 用来解析返回值类型为{@link WebAsyncTask}的类型解析器。{@link WebAsyncTask}的任务无法被替换，
+ * 所以该解析器会返回一个超时时间以及线程池（或者线程池的bean名称）与原对象相同的新对象，脱敏会在异步任务返回时进行，原对象不会被修改。
+ * <p>
+ * 新对象超时、出错以及完成时会交给原对象自己的{@link CallableProcessingInterceptor}处理，因此在原对象上通过
+ * {@link WebAsyncTask#onTimeout(Callable)}、{@link WebAsyncTask#onError(Callable)}以及{@link WebAsyncTask#onCompletion(Runnable)}
+ * 注册的回调与直接返回原对象时一样生效，超时以及出错回调返回的结果同样会被脱敏。
+ * 原对象的线程池以及{@link CallableProcessingInterceptor}只能通过反射获取。
+ *
+ * @author zyc
+ */
+public class WebAsyncTaskTypeParser implements TypeParser<WebAsyncTask<Object>, AnnotatedParameterizedType> {
+
+    private static final Field EXECUTOR = accessible(ReflectionUtils.findField(WebAsyncTask.class, "executor"));
+
+    private static final Field EXECUTOR_NAME = accessible(ReflectionUtils.findField(WebAsyncTask.class, "executorName"));
+
+    private static final Method GET_INTERCEPTOR = accessible(ReflectionUtils.findMethod(WebAsyncTask.class, "getInterceptor"));
+
+    @Override
+    public WebAsyncTask<Object> parse(WebAsyncTask<Object> webAsyncTask, AnnotatedParameterizedType annotatedParameterizedType) {
+        AnnotatedType typeArgument = annotatedParameterizedType.getAnnotatedActualTypeArguments()[0];
+        DesensitizationContext.Settings settings = DesensitizationContext.capture();
+        Callable<?> callable = webAsyncTask.getCallable();
+        WebAsyncTask<Object> desensitized = copy(webAsyncTask, () -> settings.parse(callable.call(), typeArgument));
+        // WebAsyncTask自己的CallableProcessingInterceptor不会使用请求以及任务参数
+        CallableProcessingInterceptor interceptor = (CallableProcessingInterceptor) ReflectionUtils.invokeMethod(GET_INTERCEPTOR, webAsyncTask);
+        Objects.requireNonNull(interceptor);
+        desensitized.onTimeout(() -> desensitize(interceptor.handleTimeout(null, callable), settings, typeArgument));
+        desensitized.onError(() -> desensitize(interceptor.handleError(null, callable, null), settings, typeArgument));
+        desensitized.onCompletion(() -> {
+            try {
+                interceptor.afterCompletion(null, callable);
+            } catch (Exception e) {
+                ReflectionUtils.rethrowRuntimeException(e);
+            }
+        });
+        return desensitized;
+    }
+
+    @Override
+    public boolean support(Object value, AnnotatedType annotatedType) {
+        return value instanceof WebAsyncTask && annotatedType instanceof AnnotatedParameterizedType;
+    }
+
+    @Override
+    public int order() {
+        return TypeParserOrders.CONTAINER;
+    }
+
+    /**
+     * 构造一个超时时间以及线程池与原对象相同的新对象，线程池通过bean名称指定时由spring-mvc在处理返回值时查找
+     *
+     * @param webAsyncTask 原对象
+     * @param callable     新对象的任务
+     * @return 新对象
+     */
+    private static WebAsyncTask<Object> copy(WebAsyncTask<Object> webAsyncTask, Callable<Object> callable) {
+        Long timeout = webAsyncTask.getTimeout();
+        AsyncTaskExecutor executor = (AsyncTaskExecutor) ReflectionUtils.getField(EXECUTOR, webAsyncTask);
+        if (executor != null) {
+            return new WebAsyncTask<>(timeout, executor, callable);
+        }
+        String executorName = (String) ReflectionUtils.getField(EXECUTOR_NAME, webAsyncTask);
+        if (executorName != null) {
+            return new WebAsyncTask<>(timeout, executorName, callable);
+        }
+        return timeout != null ? new WebAsyncTask<>(timeout, callable) : new WebAsyncTask<>(callable);
+    }
+
+    /**
+     * @param result       原对象的超时或者出错回调返回的结果
+     * @param settings     解析时捕获的脱敏上下文的设置
+     * @param typeArgument 结果的{@link AnnotatedType}
+     * @return 脱敏后的结果，{@link CallableProcessingInterceptor#RESULT_NONE}以及异常原样返回
+     */
+    private static Object desensitize(Object result, DesensitizationContext.Settings settings, AnnotatedType typeArgument) {
+        return result == CallableProcessingInterceptor.RESULT_NONE || result instanceof Throwable ? result : settings.parse(result, typeArgument);
+    }
+
+    private static Field accessible(Field field) {
+        ReflectionUtils.makeAccessible(Objects.requireNonNull(field));
+        return field;
+    }
+
+    private static Method accessible(Method method) {
+        ReflectionUtils.makeAccessible(Objects.requireNonNull(method));
+        return method;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import red.zyc.desensitization.annotation.Email;
+
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zyc
+ */
+class AsyncTypeParserTest {
+
+    private DeferredResult<@Email String> deferredResult;
+
+    private WebAsyncTask<@Email String> webAsyncTask;
+
+    /**
+     * 新的{@link DeferredResult}保留原对象的超时时间、超时结果以及回调
+     */
+    @Test
+    void deferredResultKeepsTimeoutAndCallbacks() throws Exception {
+        AtomicBoolean timedOut = new AtomicBoolean();
+        AtomicBoolean completed = new AtomicBoolean();
+        DeferredResult<Object> original = new DeferredResult<>(5000L, () -> "123456@qq.com");
+        original.onTimeout(() -> timedOut.set(true));
+        original.onCompletion(() -> completed.set(true));
+        DeferredResult<Object> desensitized = new DeferredResultTypeParser().parse(original, annotatedType("deferredResult"));
+        assertEquals(5000L, (Long) ReflectionTestUtils.invokeMethod(desensitized, "getTimeoutValue"));
+
+        DeferredResultProcessingInterceptor interceptor = ReflectionTestUtils.invokeMethod(desensitized, "getInterceptor");
+        assert interceptor != null;
+        interceptor.handleTimeout(null, desensitized);
+        assertTrue(timedOut.get());
+        assertTrue(desensitized.hasResult());
+        interceptor.afterCompletion(null, desensitized);
+        assertTrue(completed.get());
+    }
+
+    /**
+     * 新的{@link WebAsyncTask}保留原对象的超时时间、线程池的bean名称以及回调，并且不会修改原对象
+     */
+    @Test
+    void webAsyncTaskKeepsCallbacksWithoutMutatingOriginal() throws Exception {
+        AtomicBoolean completed = new AtomicBoolean();
+        WebAsyncTask<Object> original = new WebAsyncTask<>(3000L, "asyncExecutor", () -> "123456@qq.com");
+        original.onTimeout(() -> "timeout");
+        original.onCompletion(() -> completed.set(true));
+        WebAsyncTask<Object> desensitized = new WebAsyncTaskTypeParser().parse(original, annotatedType("webAsyncTask"));
+        assertEquals(3000L, desensitized.getTimeout());
+        assertEquals("asyncExecutor", ReflectionTestUtils.getField(desensitized, "executorName"));
+        assertNull(ReflectionTestUtils.getField(original, "beanFactory"));
+
+        CallableProcessingInterceptor interceptor = ReflectionTestUtils.invokeMethod(desensitized, "getInterceptor");
+        assert interceptor != null;
+        assertEquals("timeout", interceptor.handleTimeout(null, desensitized.getCallable()));
+        assertEquals(CallableProcessingInterceptor.RESULT_NONE, interceptor.handleError(null, desensitized.getCallable(), new IllegalStateException()));
+        interceptor.afterCompletion(null, desensitized.getCallable());
+        assertTrue(completed.get());
+    }
+
+    private static AnnotatedParameterizedType annotatedType(String field) throws NoSuchFieldException {
+        return (AnnotatedParameterizedType) AsyncTypeParserTest.class.getDeclaredField(field).getAnnotatedType();
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import red.zyc.desensitization.annotation.Email;
+import red.zyc.desensitization.boot.autoconfigure.CascadeTypeParser.Claim;
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationLimits.Policy;
+import red.zyc.parser.AnnotationParser;
+import red.zyc.parser.type.Cascade;
+
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zyc
+ */
+class CascadeTypeParserTest {
+
+    private static final CascadeTypeParser CASCADE_TYPE_PARSER = new CascadeTypeParser(List.of(new NodeTypeParser()));
+
+    private @Cascade Node node;
+
+    private @Email String email;
+
+    private @Cascade Person person;
+
+    private List<@Email String> emails;
+
+    private List<@Cascade Node> nodes;
+
+    private DesensitizationContext context;
+
+    @AfterEach
+    void close() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    /**
+     * 同一个上下文中同一个对象只会被级联脱敏一次，对象图中的环引用被脱敏为{@code null}
+     */
+    @Test
+    void memoizesCascadedObjectsAndBreaksCycles() throws NoSuchFieldException {
+        context = DesensitizationContext.open(null, DesensitizationLimits.NONE, 0, false);
+        Node first = new Node("first");
+        Node second = new Node("second");
+        first.next = second;
+        second.next = first;
+
+        Node desensitized = (Node) parse(first, annotatedType("node"));
+        assertNotSame(first, desensitized);
+        assertNotSame(second, desensitized.next);
+        assertEquals("second", desensitized.next.name);
+        assertNull(desensitized.next.next);
+
+        assertSame(desensitized, parse(first, annotatedType("node")));
+        assertSame(desensitized.next, parse(second, annotatedType("node")));
+        assertEquals(2, context.maxDepth());
+    }
+
+    /**
+     * 没有编译期生成的类型解析器时通过{@link AnnotationParser}反射级联脱敏，结果同样被复用，
+     * 并且交给{@link AnnotationParser}的对象在级联结束之后不会继续被跳过
+     */
+    @Test
+    void cascadesReflectivelyWithoutGeneratedParser() throws NoSuchFieldException {
+        CascadeTypeParser reflective = new CascadeTypeParser();
+        AnnotatedType personType = annotatedType("person");
+        Person original = new Person();
+        original.email = "123456@qq.com";
+        Object expected = AnnotationParser.parse(original, personType);
+
+        context = DesensitizationContext.open(null, DesensitizationLimits.NONE, 0, false);
+        assertTrue(reflective.support(original, personType));
+        Object desensitized = reflective.parse(original, personType);
+        assertEquals(expected.getClass(), desensitized.getClass());
+        assertEquals(((Person) expected).email, ((Person) desensitized).email);
+        assertEquals(1, context.maxDepth());
+
+        assertTrue(reflective.support(original, personType));
+        assertSame(desensitized, reflective.parse(original, personType));
+    }
+
+    /**
+     * {@link CascadeTypeParser#support(Object, AnnotatedType)}没有副作用，元素在解析时才被计数，超出限制之后的对象被丢弃
+     */
+    @Test
+    void countsElementsOnlyWhenParsing() throws NoSuchFieldException {
+        DesensitizationLimits elements = new DesensitizationLimits(1, Policy.TRUNCATE, -1, Policy.FAIL, null, Policy.FAIL, null);
+        context = DesensitizationContext.open(null, elements, 0, false);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(CASCADE_TYPE_PARSER.support("123456@qq.com", annotatedType("email")));
+        }
+        assertEquals(0, context.elements());
+        assertEquals(AnnotationParser.parse("123456@qq.com", annotatedType("email")), CASCADE_TYPE_PARSER.parse("123456@qq.com", annotatedType("email")));
+        assertNull(CASCADE_TYPE_PARSER.parse(new Node("node"), annotatedType("node")));
+        assertTrue(context.isTruncated());
+        context.close();
+
+        DesensitizationLimits depth = new DesensitizationLimits(-1, Policy.FAIL, 0, Policy.TRUNCATE, null, Policy.FAIL, null);
+        context = DesensitizationContext.open(null, depth, 0, false);
+        assertNull(CASCADE_TYPE_PARSER.parse(new Node("node"), annotatedType("node")));
+        assertEquals(0, context.maxDepth());
+    }
+
+    /**
+     * 对象按照级联、缓存、截断、原地脱敏以及批量脱敏的顺序被认领，其它对象交给之后的类型解析器
+     */
+    @Test
+    void claimsInOrder() throws NoSuchFieldException {
+        context = DesensitizationContext.open(null, DesensitizationLimits.NONE, 0, false);
+        assertEquals(Claim.CASCADE, CASCADE_TYPE_PARSER.claim(context, new Node("node"), annotatedType("node")));
+        assertNull(CASCADE_TYPE_PARSER.claim(context, "123456@qq.com", annotatedType("email")));
+        context.close();
+
+        DesensitizationLimits truncate = new DesensitizationLimits(2, Policy.TRUNCATE, -1, Policy.FAIL, null, Policy.FAIL, null);
+        context = DesensitizationContext.open(null, truncate, 0, true);
+        assertEquals(Claim.TRUNCATE, CASCADE_TYPE_PARSER.claim(context, new ArrayList<>(List.of("1", "2", "3")), annotatedType("emails")));
+        context.close();
+
+        List<Node> batch = new ArrayList<>(List.of(new Node("1"), new Node("2")));
+        context = DesensitizationContext.open(null, DesensitizationLimits.NONE, 0, true);
+        assertEquals(Claim.IN_PLACE, CASCADE_TYPE_PARSER.claim(context, batch, annotatedType("nodes")));
+        context.close();
+
+        context = DesensitizationContext.open(null, DesensitizationLimits.NONE, 0, false);
+        assertEquals(Claim.BATCH, CASCADE_TYPE_PARSER.claim(context, batch, annotatedType("nodes")));
+        assertEquals(0, context.elements());
+    }
+
+    /**
+     * 原地脱敏时直接修改容器以及{@link Cascade}对象，否则不会认领普通的容器
+     */
+    @Test
+    void mutatesInPlace() throws NoSuchFieldException {
+        AnnotatedType emailsType = annotatedType("emails");
+        AnnotatedType elementType = ((AnnotatedParameterizedType) emailsType).getAnnotatedActualTypeArguments()[0];
+        String expected = AnnotationParser.parse("123456@qq.com", elementType);
+
+        context = DesensitizationContext.open(null, DesensitizationLimits.NONE, 0, true);
+        List<String> list = new ArrayList<>(List.of("123456@qq.com"));
+        assertSame(list, parse(list, emailsType));
+        assertEquals(List.of(expected), list);
+
+        Person original = new Person();
+        original.email = "123456@qq.com";
+        assertSame(original, parse(original, annotatedType("person")));
+        assertEquals(AnnotationParser.parse("123456@qq.com", annotatedType("email")), original.email);
+        context.close();
+
+        context = DesensitizationContext.open(null, DesensitizationLimits.NONE, 0, false);
+        assertNull(CASCADE_TYPE_PARSER.claim(context, new ArrayList<>(List.of("123456@qq.com")), emailsType));
+    }
+
+    static Object parse(Object value, AnnotatedType annotatedType) {
+        return CASCADE_TYPE_PARSER.support(value, annotatedType) ? CASCADE_TYPE_PARSER.parse(value, annotatedType) : value;
+    }
+
+    static AnnotatedType annotatedType(String field) throws NoSuchFieldException {
+        return CascadeTypeParserTest.class.getDeclaredField(field).getAnnotatedType();
+    }
+
+    static class Node {
+
+        private final String name;
+
+        private @Cascade Node next;
+
+        Node(String name) {
+            this.name = name;
+        }
+    }
+
+    static class Person {
+
+        private @Email String email;
+    }
+
+    /**
+     * 模拟编译期生成的类型解析器，通过{@link CascadeTypeParser}级联脱敏下一个节点
+     */
+    static class NodeTypeParser extends GeneratedCascadeTypeParser<Node> {
+
+        NodeTypeParser() {
+            super(Node.class);
+        }
+
+        @Override
+        protected Node desensitize(Node value) {
+            Node desensitized = new Node(value.name);
+            try {
+                desensitized.next = value.next == null ? null : (Node) CascadeTypeParserTest.parse(value.next, Node.class.getDeclaredField("next").getAnnotatedType());
+            } catch (NoSuchFieldException e) {
+                throw new IllegalStateException(e);
+            }
+            return desensitized;
+        }
+
+        @Override
+        protected boolean batchable() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import red.zyc.desensitization.annotation.Email;
+import red.zyc.parser.AnnotationParser;
+
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zyc
+ */
+class ContainerTypeParserTest {
+
+    private static final List<String> EMAILS = List.of("123456@qq.com", "654321@qq.com", "111111@qq.com");
+
+    private Stream<@Email String> stream;
+
+    private Optional<@Email String> optional;
+
+    private Slice<@Email String> slice;
+
+    /**
+     * 流中的元素只会在被消费时脱敏，原流的关闭回调被保留，上下文关闭之后仍然可以继续消费
+     */
+    @Test
+    void keepsStreamLazy() throws NoSuchFieldException {
+        StreamTypeParser streamTypeParser = new StreamTypeParser();
+        AnnotatedParameterizedType streamType = annotatedType("stream");
+        List<String> consumed = new ArrayList<>();
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<Object> source = EMAILS.stream().<Object>map(email -> email).peek(email -> consumed.add((String) email)).onClose(() -> closed.set(true));
+        assertTrue(streamTypeParser.support(source, streamType));
+
+        DesensitizationContext context = DesensitizationContext.open(null, DesensitizationLimits.NONE, 0, false);
+        Stream<Object> desensitized;
+        try {
+            desensitized = streamTypeParser.parse(source, streamType);
+        } finally {
+            context.close();
+        }
+        assertTrue(consumed.isEmpty());
+        try (desensitized) {
+            assertEquals(expected(streamType), desensitized.toList());
+        }
+        assertEquals(EMAILS, consumed);
+        assertTrue(closed.get());
+    }
+
+    /**
+     * {@link Optional}中的值被脱敏，空的{@link Optional}保持为空
+     */
+    @Test
+    void parsesOptional() throws NoSuchFieldException {
+        OptionalTypeParser optionalTypeParser = new OptionalTypeParser();
+        AnnotatedParameterizedType optionalType = annotatedType("optional");
+        assertTrue(optionalTypeParser.support(Optional.of(EMAILS.get(0)), optionalType));
+        assertEquals(Optional.of(AnnotationParser.parse(EMAILS.get(0), optionalType.getAnnotatedActualTypeArguments()[0])),
+                optionalTypeParser.parse(Optional.of(EMAILS.get(0)), optionalType));
+        assertEquals(Optional.empty(), optionalTypeParser.parse(Optional.empty(), optionalType));
+        assertFalse(optionalTypeParser.support(EMAILS.get(0), optionalType));
+    }
+
+    /**
+     * 只脱敏分页中的内容，{@link Page}仍然是{@link Page}并且保留总数以及分页信息
+     */
+    @Test
+    void keepsPageMetadata() throws NoSuchFieldException {
+        SliceTypeParser sliceTypeParser = new SliceTypeParser();
+        AnnotatedParameterizedType sliceType = annotatedType("slice");
+        Pageable pageable = PageRequest.of(1, 3, Sort.by("email"));
+
+        Page<Object> page = new PageImpl<>(new ArrayList<>(EMAILS), pageable, 10);
+        assertTrue(sliceTypeParser.support(page, sliceType));
+        Page<?> desensitizedPage = assertInstanceOf(Page.class, sliceTypeParser.parse(page, sliceType));
+        assertEquals(expected(sliceType), desensitizedPage.getContent());
+        assertEquals(10, desensitizedPage.getTotalElements());
+        assertEquals(4, desensitizedPage.getTotalPages());
+        assertEquals(pageable, desensitizedPage.getPageable());
+
+        Slice<Object> source = new SliceImpl<>(new ArrayList<>(EMAILS), pageable, true);
+        Slice<Object> desensitizedSlice = sliceTypeParser.parse(source, sliceType);
+        assertFalse(desensitizedSlice instanceof Page);
+        assertEquals(expected(sliceType), desensitizedSlice.getContent());
+        assertTrue(desensitizedSlice.hasNext());
+        assertEquals(pageable, desensitizedSlice.getPageable());
+    }
+
+    private static List<Object> expected(AnnotatedParameterizedType annotatedType) {
+        AnnotatedType typeArgument = annotatedType.getAnnotatedActualTypeArguments()[0];
+        return EMAILS.stream().<Object>map(email -> AnnotationParser.parse(email, typeArgument)).toList();
+    }
+
+    private static AnnotatedParameterizedType annotatedType(String field) throws NoSuchFieldException {
+        return (AnnotatedParameterizedType) ContainerTypeParserTest.class.getDeclaredField(field).getAnnotatedType();
+    }
+}
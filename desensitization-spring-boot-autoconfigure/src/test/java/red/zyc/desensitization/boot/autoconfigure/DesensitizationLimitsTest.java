@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import red.zyc.desensitization.annotation.Email;
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationLimits.Limit;
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationLimits.Policy;
+
+import java.lang.reflect.AnnotatedType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zyc
+ */
+class DesensitizationLimitsTest {
+
+    private static final CascadeTypeParser CASCADE_TYPE_PARSER = new CascadeTypeParser();
+
+    private List<@Email String> list;
+
+    private @Email String[] array;
+
+    private DesensitizationContext context;
+
+    @AfterEach
+    void close() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    /**
+     * 截断策略下集合以及数组只保留限制以内的元素，集合本身也占用一个元素的额度
+     */
+    @Test
+    void truncatesContainers() throws NoSuchFieldException {
+        DesensitizationLimits limits = new DesensitizationLimits(3, Policy.TRUNCATE, -1, Policy.FAIL, null, Policy.FAIL, null);
+        context = DesensitizationContext.open(null, limits, 0, false);
+        Object truncated = parse(new LinkedList<>(List.of("1", "2", "3", "4", "5")), annotatedType("list"));
+        assertInstanceOf(LinkedList.class, truncated);
+        assertEquals(2, ((List<?>) truncated).size());
+        context.close();
+
+        context = DesensitizationContext.open(null, limits, 0, false);
+        Object truncatedArray = parse(new String[]{"1", "2", "3", "4", "5"}, annotatedType("array"));
+        assertInstanceOf(String[].class, truncatedArray);
+        assertEquals(2, ((String[]) truncatedArray).length);
+    }
+
+    /**
+     * 失败策略以及替换策略下超出限制时抛出异常，异常中携带超出的限制以及处理策略
+     */
+    @Test
+    void failsWhenExceeded() throws NoSuchFieldException {
+        DesensitizationLimits fail = new DesensitizationLimits(0, Policy.FAIL, -1, Policy.FAIL, null, Policy.FAIL, null);
+        context = DesensitizationContext.open(null, fail, 0, false);
+        AnnotatedType listType = annotatedType("list");
+        DesensitizationLimitExceededException exception = assertThrows(DesensitizationLimitExceededException.class,
+                () -> CASCADE_TYPE_PARSER.parse(new ArrayList<>(List.of("1")), listType));
+        assertEquals(Limit.ELEMENTS, exception.getLimit());
+        assertEquals(Policy.FAIL, exception.getPolicy());
+        assertEquals(Limit.ELEMENTS, context.exceeded());
+        context.close();
+
+        DesensitizationLimits mask = new DesensitizationLimits(-1, Policy.FAIL, 0, Policy.MASK, null, Policy.FAIL, "******");
+        context = DesensitizationContext.open(null, mask, 0, false);
+        assertEquals(Policy.MASK, assertThrows(DesensitizationLimitExceededException.class, context::exceedsCascadeDepth).getPolicy());
+    }
+
+    /**
+     * 替换策略下字符串被替换为占位符，容器被替换为同类型的空对象，{@link ResponseEntity}只替换响应体，其它对象被替换为{@code null}
+     */
+    @Test
+    void masksWholeValue() {
+        DesensitizationLimits limits = new DesensitizationLimits(0, Policy.MASK, -1, Policy.FAIL, null, Policy.FAIL, "******");
+        assertEquals("******", limits.mask("123456@qq.com"));
+        assertEquals(Optional.empty(), limits.mask(Optional.of("123456@qq.com")));
+        Object list = limits.mask(new LinkedList<>(List.of("123456@qq.com")));
+        assertInstanceOf(LinkedList.class, list);
+        assertTrue(((List<?>) list).isEmpty());
+        assertEquals(List.of(), limits.mask(List.of("123456@qq.com")));
+        assertEquals(Set.of(), limits.mask(Collections.unmodifiableSet(Set.of("123456@qq.com"))));
+        assertEquals(Map.of(), limits.mask(Map.of("email", "123456@qq.com")));
+        assertArrayEquals(new String[0], (String[]) limits.mask(new String[]{"123456@qq.com"}));
+        assertNull(limits.mask(new Object()));
+
+        ResponseEntity<List<String>> responseEntity = ResponseEntity.status(HttpStatus.CREATED).header("X-Trace", "1").body(new ArrayList<>(List.of("123456@qq.com")));
+        ResponseEntity<?> masked = assertInstanceOf(ResponseEntity.class, limits.mask(responseEntity));
+        assertEquals(HttpStatus.CREATED, masked.getStatusCode());
+        assertEquals("1", masked.getHeaders().getFirst("X-Trace"));
+        assertEquals(new ArrayList<>(), masked.getBody());
+        assertNull(assertInstanceOf(HttpEntity.class, limits.mask(new HttpEntity<>(new Object()))).getBody());
+    }
+
+    private static Object parse(Object value, AnnotatedType annotatedType) {
+        assertTrue(CASCADE_TYPE_PARSER.support(value, annotatedType));
+        return CASCADE_TYPE_PARSER.parse(value, annotatedType);
+    }
+
+    private static AnnotatedType annotatedType(String field) throws NoSuchFieldException {
+        return DesensitizationLimitsTest.class.getDeclaredField(field).getAnnotatedType();
+    }
+}
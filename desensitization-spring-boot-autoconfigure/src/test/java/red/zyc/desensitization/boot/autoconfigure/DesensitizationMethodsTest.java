@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aot.generate.ClassNameGenerator;
+import org.springframework.aot.generate.DefaultGenerationContext;
+import org.springframework.aot.generate.GeneratedFiles;
+import org.springframework.aot.generate.InMemoryGeneratedFiles;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.javapoet.ClassName;
+import red.zyc.desensitization.annotation.Email;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zyc
+ */
+class DesensitizationMethodsTest {
+
+    @TempDir
+    Path classPath;
+
+    /**
+     * AOT处理时写入的方法签名经过转义之后，运行时仍然能够被原样加载，包括嵌套类、数组、可变参数以及非ASCII字符
+     */
+    @Test
+    void roundTripsThroughAotProcessor() throws IOException, NoSuchMethodException {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("service", new RootBeanDefinition(Service.class));
+        BeanFactoryInitializationAotContribution contribution = new DesensitizationBeanFactoryInitializationAotProcessor().processAheadOfTime(beanFactory);
+        assertNotNull(contribution);
+
+        InMemoryGeneratedFiles generatedFiles = new InMemoryGeneratedFiles();
+        contribution.applyTo(new DefaultGenerationContext(new ClassNameGenerator(ClassName.get(Service.class)), generatedFiles), null);
+        String content = generatedFiles.getGeneratedFileContent(GeneratedFiles.Kind.RESOURCE, DesensitizationMethods.LOCATION);
+        assertNotNull(content);
+        Path file = classPath.resolve(DesensitizationMethods.LOCATION);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classPath.toUri().toURL()}, null)) {
+            DesensitizationMethods methods = DesensitizationMethods.load(classLoader);
+            assertNotNull(methods);
+            assertTrue(methods.needDesensitized(Service.class.getMethod("find", String.class, int[].class)));
+            assertTrue(methods.needDesensitized(Service.class.getMethod("查询", String[].class)));
+            assertTrue(methods.needDesensitized(Service.class.getMethod("list", List.class)));
+            assertFalse(methods.needDesensitized(Service.class.getMethod("plain", String.class)));
+        }
+        assertEquals("find(java.lang.String,int[])", DesensitizationMethods.signature(Service.class.getMethod("find", String.class, int[].class)));
+    }
+
+    /**
+     * 不存在预先计算的结果时返回{@code null}，由运行时分析方法签名
+     */
+    @Test
+    void loadsNothingWithoutResource() throws IOException {
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classPath.toUri().toURL()}, null)) {
+            assertNull(DesensitizationMethods.load(classLoader));
+        }
+    }
+
+    static class Service {
+
+        public String find(@Email String email, int[] ids) {
+            return email;
+        }
+
+        public @Email String 查询(String... names) {
+            return names[0];
+        }
+
+        public List<@Email String> list(List<String> emails) {
+            return emails;
+        }
+
+        public String plain(String value) {
+            return value;
+        }
+    }
+}
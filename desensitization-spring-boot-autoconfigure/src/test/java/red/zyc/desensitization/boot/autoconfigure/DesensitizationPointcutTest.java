@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.PointcutAdvisor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import red.zyc.desensitization.annotation.Email;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zyc
+ */
+class DesensitizationPointcutTest {
+
+    private static final String PACKAGE = DesensitizationPointcutTest.class.getPackageName();
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(DesensitizationAutoConfiguration.class));
+
+    /**
+     * 包会同时匹配其子包，但不会匹配名称以该包为前缀的其它包
+     */
+    @Test
+    void matchesPackagePrefix() {
+        assertTrue(AopUtils.canApply(new DesensitizationPointcut(List.of(PACKAGE)), Included.class));
+        assertTrue(AopUtils.canApply(new DesensitizationPointcut(List.of(PACKAGE + ".")), Included.class));
+        assertTrue(AopUtils.canApply(new DesensitizationPointcut(List.of("red.zyc.desensitization")), Included.class));
+        assertTrue(AopUtils.canApply(new DesensitizationPointcut(), Included.class));
+        assertFalse(AopUtils.canApply(new DesensitizationPointcut(List.of(PACKAGE.substring(0, PACKAGE.length() - 1))), Included.class));
+        assertFalse(AopUtils.canApply(new DesensitizationPointcut(List.of("com.example")), Included.class));
+    }
+
+    /**
+     * 只匹配参数或返回值需要被脱敏的方法，没有这样的方法的类不会被代理
+     */
+    @Test
+    void matchesDesensitizedMethods() throws NoSuchMethodException {
+        DesensitizationPointcut pointcut = new DesensitizationPointcut(List.of(PACKAGE));
+        assertTrue(pointcut.getMethodMatcher().matches(Included.class.getMethod("find", String.class), Included.class));
+        assertFalse(pointcut.getMethodMatcher().matches(Included.class.getMethod("plain", String.class), Included.class));
+        assertFalse(AopUtils.canApply(pointcut, Plain.class));
+    }
+
+    /**
+     * 配置了切点表达式时，只有同时满足切点表达式并且存在需要脱敏的方法的类才会被匹配，此时不再按照包进行过滤
+     */
+    @Test
+    void intersectsPointcutExpression() {
+        contextRunner.withPropertyValues("desensitization.pointcut-expression=execution(* *..DesensitizationPointcutTest.Included.*(..))",
+                        "desensitization.packages=com.example")
+                .run(context -> {
+                    Pointcut pointcut = context.getBean("desensitizationAdvisor", PointcutAdvisor.class).getPointcut();
+                    assertTrue(AopUtils.canApply(pointcut, Included.class));
+                    assertFalse(AopUtils.canApply(pointcut, Excluded.class));
+                    assertFalse(pointcut.getMethodMatcher().matches(Included.class.getMethod("plain", String.class), Included.class));
+                });
+        contextRunner.withPropertyValues("desensitization.packages=com.example")
+                .run(context -> assertFalse(AopUtils.canApply(context.getBean("desensitizationAdvisor", PointcutAdvisor.class).getPointcut(), Included.class)));
+    }
+
+    static class Included {
+
+        public String find(@Email String email) {
+            return email;
+        }
+
+        public String plain(String value) {
+            return value;
+        }
+    }
+
+    static class Excluded {
+
+        public @Email String find(String email) {
+            return email;
+        }
+    }
+
+    static class Plain {
+
+        public String plain(String value) {
+            return value;
+        }
+    }
+}
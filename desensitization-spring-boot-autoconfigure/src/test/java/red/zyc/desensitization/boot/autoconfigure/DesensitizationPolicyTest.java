@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import red.zyc.desensitization.annotation.Email;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * @author zyc
+ */
+class DesensitizationPolicyTest {
+
+    private final AtomicBoolean desensitize = new AtomicBoolean(true);
+
+    private final AtomicInteger invocations = new AtomicInteger();
+
+    private final Service target = new Service();
+
+    private final Service service = proxy();
+
+    /**
+     * 策略不允许脱敏时直接调用原方法，参数以及返回值都是未脱敏的原对象
+     */
+    @Test
+    void bypassReturnsUnmaskedValue() {
+        List<String> emails = new ArrayList<>(List.of("123456@qq.com", "654321@qq.com"));
+        desensitize.set(false);
+        assertSame(emails, service.echo(emails));
+        assertSame(emails, target.received);
+        assertEquals(1, invocations.get());
+    }
+
+    /**
+     * 策略允许脱敏时参数被替换为脱敏后的只读视图
+     */
+    @Test
+    void desensitizesWhenAllowed() {
+        List<String> emails = new ArrayList<>(List.of("123456@qq.com", "654321@qq.com"));
+        service.echo(emails);
+        assertNotSame(emails, target.received);
+        assertInstanceOf(LazyDesensitizedList.class, target.received);
+        assertEquals(1, invocations.get());
+    }
+
+    /**
+     * 参数以及返回值都不需要脱敏的方法不会执行策略
+     */
+    @Test
+    void skipsMethodsWithoutDesensitization() {
+        desensitize.set(false);
+        assertEquals("plain", service.plain("plain"));
+        assertEquals(0, invocations.get());
+    }
+
+    private Service proxy() {
+        MethodDesensitizationInterceptor interceptor = new MethodDesensitizationInterceptor();
+        interceptor.setLazyArguments(true);
+        interceptor.setPolicy(invocation -> {
+            invocations.incrementAndGet();
+            return desensitize.get();
+        });
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return (Service) proxyFactory.getProxy();
+    }
+
+    static class Service {
+
+        List<String> received;
+
+        public List<String> echo(List<@Email String> emails) {
+            received = emails;
+            return emails;
+        }
+
+        public String plain(String value) {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import red.zyc.desensitization.annotation.Email;
+import red.zyc.desensitization.annotation.PhoneNumber;
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.AnnotatedType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zyc
+ */
+class DesensitizationResultCacheTest {
+
+    private @Email String email;
+
+    private @PhoneNumber String phoneNumber;
+
+    private @Email @PhoneNumber String emailAndPhoneNumber;
+
+    private @Plain String plain;
+
+    private @Email Object object;
+
+    private final Object owner = new Object();
+
+    private final List<String> calls = new ArrayList<>();
+
+    @AfterEach
+    void unregister() {
+        TypeParserRegistry.INSTANCE.unregister(owner);
+    }
+
+    /**
+     * 只缓存被唯一一个允许的脱敏注解标记的字符串
+     */
+    @Test
+    void cachesOnlySingleAllowedAnnotation() throws NoSuchFieldException {
+        DesensitizationResultCache all = new DesensitizationResultCache(10, null, Set.of());
+        assertTrue(all.cacheable("123456@qq.com", annotatedType("email")));
+        assertTrue(all.cacheable("12345678901", annotatedType("phoneNumber")));
+        assertFalse(all.cacheable("123456@qq.com", annotatedType("emailAndPhoneNumber")));
+        assertFalse(all.cacheable("123456@qq.com", annotatedType("plain")));
+        assertFalse(all.cacheable(new StringBuilder("123456@qq.com"), annotatedType("object")));
+
+        DesensitizationResultCache emailOnly = new DesensitizationResultCache(10, null, Set.of(Email.class));
+        assertTrue(emailOnly.cacheable("123456@qq.com", annotatedType("email")));
+        assertFalse(emailOnly.cacheable("12345678901", annotatedType("phoneNumber")));
+    }
+
+    /**
+     * 相同注解脱敏相同字符串时复用之前的结果，不是字符串的结果不会被缓存
+     */
+    @Test
+    void reusesCachedResult() throws NoSuchFieldException {
+        DesensitizationResultCache cache = new DesensitizationResultCache(10, null, Set.of());
+        AnnotatedType annotatedType = annotatedType("email");
+        assertEquals("masked", cache.get("123456@qq.com", annotatedType, () -> record("masked")));
+        assertEquals("masked", cache.get("123456@qq.com", annotatedType, () -> record("again")));
+        assertEquals(List.of("masked"), calls);
+
+        assertEquals(1, cache.get("654321@qq.com", annotatedType, () -> record(1)));
+        assertEquals("masked", cache.get("654321@qq.com", annotatedType, () -> record("masked")));
+        assertEquals(List.of("masked", "1", "masked"), calls);
+    }
+
+    /**
+     * 未命中缓存时{@link CascadeTypeParser}通过{@link TypeParserRegistry#parseNext(TypeParser, Object, AnnotatedType)}
+     * 交给排在其后的类型解析器脱敏，不会再次进入自身
+     */
+    @Test
+    void reentersThroughRegistry() throws NoSuchFieldException {
+        DesensitizationResultCache cache = new DesensitizationResultCache(10, null, Set.of());
+        CascadeTypeParser cascadeTypeParser = new CascadeTypeParser(List.of(), cache);
+        TypeParserRegistry.INSTANCE.register(owner, List.of(cascadeTypeParser, new MaskingTypeParser()));
+        AnnotatedType annotatedType = annotatedType("email");
+        DesensitizationContext context = DesensitizationContext.open(owner, DesensitizationLimits.NONE, 0, false);
+        try {
+            assertEquals(CascadeTypeParser.Claim.CACHE, cascadeTypeParser.claim(context, "123456@qq.com", annotatedType));
+            assertEquals("masked:123456@qq.com", cascadeTypeParser.parse("123456@qq.com", annotatedType));
+            assertEquals("masked:123456@qq.com", cascadeTypeParser.parse("123456@qq.com", annotatedType));
+        } finally {
+            context.close();
+        }
+        assertEquals(List.of("123456@qq.com"), calls);
+    }
+
+    private Object record(Object result) {
+        calls.add(String.valueOf(result));
+        return result;
+    }
+
+    private static AnnotatedType annotatedType(String field) throws NoSuchFieldException {
+        return DesensitizationResultCacheTest.class.getDeclaredField(field).getAnnotatedType();
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.TYPE_USE)
+    @interface Plain {
+    }
+
+    private class MaskingTypeParser implements TypeParser<String, AnnotatedType> {
+
+        @Override
+        public String parse(String value, AnnotatedType annotatedType) {
+            calls.add(value);
+            return "masked:" + value;
+        }
+
+        @Override
+        public boolean support(Object value, AnnotatedType annotatedType) {
+            return value instanceof String;
+        }
+
+        @Override
+        public int order() {
+            return 0;
+        }
+    }
+}
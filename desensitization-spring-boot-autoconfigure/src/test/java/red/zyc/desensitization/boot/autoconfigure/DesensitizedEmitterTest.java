@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import red.zyc.desensitization.annotation.Email;
+import red.zyc.parser.AnnotationParser;
+
+import java.io.IOException;
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zyc
+ */
+class DesensitizedEmitterTest {
+
+    @AfterEach
+    void reset() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    /**
+     * 指定元素类型之前发送的元素以及完成信号被暂存，指定之后才会被脱敏并交给spring，并且只有第一次指定生效
+     */
+    @Test
+    void holdsElementsUntilBound() throws Exception {
+        AnnotatedType elementType = elementType(method("emails"));
+        DesensitizedResponseBodyEmitter<String> emitter = new DesensitizedResponseBodyEmitter<>();
+        emitter.send("123456@qq.com");
+        emitter.complete();
+        assertTrue(sent(emitter).isEmpty());
+        assertFalse((Boolean) ReflectionTestUtils.getField(emitter, ResponseBodyEmitter.class, "complete"));
+
+        emitter.support.desensitizeWith(elementType, DesensitizationContext.Settings.DETACHED);
+        assertEquals(List.of(AnnotationParser.parse("123456@qq.com", elementType)), sent(emitter));
+        assertTrue((Boolean) ReflectionTestUtils.getField(emitter, ResponseBodyEmitter.class, "complete"));
+
+        emitter.support.unmasked();
+        assertFalse((Boolean) ReflectionTestUtils.getField(emitter.support, "unmasked"));
+        assertSame(elementType, ReflectionTestUtils.getField(emitter.support, "elementType"));
+    }
+
+    /**
+     * 只有被显式指定为原样发送时，元素才会原样交给spring
+     */
+    @Test
+    void sendsRawElementsOnlyWhenUnmasked() throws Exception {
+        DesensitizedResponseBodyEmitter<String> emitter = new DesensitizedResponseBodyEmitter<>();
+        emitter.send("123456@qq.com");
+        emitter.support.unmasked();
+        emitter.support.desensitizeWith(elementType(method("emails")), DesensitizationContext.Settings.DETACHED);
+        assertTrue((Boolean) ReflectionTestUtils.getField(emitter.support, "unmasked"));
+        assertNull(ReflectionTestUtils.getField(emitter.support, "elementType"));
+        assertEquals(List.of("123456@qq.com"), sent(emitter));
+    }
+
+    /**
+     * 没有被拦截的emitter在响应开始时从处理器方法的返回值类型中解析元素类型，无法解析时响应失败并且不会发送任何元素
+     */
+    @Test
+    void bindsToHandlerOrFails() throws Exception {
+        DesensitizedResponseBodyEmitter<String> unresolved = new DesensitizedResponseBodyEmitter<>();
+        unresolved.send("123456@qq.com");
+        assertThrows(IllegalStateException.class, () -> unresolved.extendResponse(null));
+        assertTrue(sent(unresolved).isEmpty());
+        assertThrows(IllegalStateException.class, () -> new DesensitizedSseEmitter<String>().extendResponse(null));
+
+        Method method = method("emails");
+        MapRequestAttributes requestAttributes = new MapRequestAttributes();
+        requestAttributes.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, new HandlerMethod(this, method), RequestAttributes.SCOPE_REQUEST);
+        RequestContextHolder.setRequestAttributes(requestAttributes);
+        DesensitizedResponseBodyEmitter<String> resolved = new DesensitizedResponseBodyEmitter<>();
+        resolved.send("123456@qq.com");
+        resolved.extendResponse(null);
+        assertEquals(elementType(method).getType(), ((AnnotatedType) ReflectionTestUtils.getField(resolved.support, "elementType")).getType());
+        assertEquals(List.of(AnnotationParser.parse("123456@qq.com", elementType(method))), sent(resolved));
+    }
+
+    /**
+     * {@link DesensitizationPolicy}允许获取原始数据时，包装在{@link ResponseEntity}中的emitter同样被显式指定为原样发送
+     */
+    @Test
+    void unmasksWrappedEmitterWhenPolicyBypasses() {
+        MethodDesensitizationInterceptor interceptor = new MethodDesensitizationInterceptor(DesensitizationMetrics.NONE, SerializationDesensitization.NONE);
+        interceptor.setPolicy(invocation -> false);
+        ProxyFactory proxyFactory = new ProxyFactory(new Emitters());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        ResponseEntity<DesensitizedSseEmitter<String>> responseEntity = ((Emitters) proxyFactory.getProxy()).events();
+        DesensitizedSseEmitter<String> emitter = responseEntity.getBody();
+        assert emitter != null;
+        assertTrue((Boolean) ReflectionTestUtils.getField(emitter.support, "unmasked"));
+    }
+
+    DesensitizedResponseBodyEmitter<@Email String> emails() {
+        return new DesensitizedResponseBodyEmitter<>();
+    }
+
+    /**
+     * @return 已经交给spring的元素，没有初始化处理器之前spring会暂存这些元素
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Object> sent(ResponseBodyEmitter emitter) {
+        Set<ResponseBodyEmitter.DataWithMediaType> items = (Set<ResponseBodyEmitter.DataWithMediaType>) ReflectionTestUtils.getField(emitter, ResponseBodyEmitter.class, "earlySendAttempts");
+        assert items != null;
+        return items.stream().map(ResponseBodyEmitter.DataWithMediaType::getData).toList();
+    }
+
+    private static Method method(String name) throws NoSuchMethodException {
+        return DesensitizedEmitterTest.class.getDeclaredMethod(name);
+    }
+
+    private static AnnotatedType elementType(Method method) {
+        return ((AnnotatedParameterizedType) method.getAnnotatedReturnType()).getAnnotatedActualTypeArguments()[0];
+    }
+
+    static class Emitters {
+
+        public ResponseEntity<DesensitizedSseEmitter<@Email String>> events() {
+            return ResponseEntity.ok(new DesensitizedSseEmitter<>());
+        }
+    }
+}
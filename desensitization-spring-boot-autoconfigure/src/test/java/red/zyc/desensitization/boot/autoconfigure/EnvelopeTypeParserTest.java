@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.SystemEnvironmentPropertySource;
+import red.zyc.desensitization.annotation.Email;
+import red.zyc.parser.AnnotationParser;
+
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zyc
+ */
+class EnvelopeTypeParserTest {
+
+    private static final EnvelopeTypeParser ENVELOPE_TYPE_PARSER = new EnvelopeTypeParser(Map.of(Result.class, "data"));
+
+    private Result<@Email String> result;
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner().withUserConfiguration(EnvelopeConfiguration.class);
+
+    /**
+     * 响应实体被浅复制，只有实际数据被替换为脱敏后的对象，其它属性原样复制
+     */
+    @Test
+    void copiesEnvelopeAndParsesPayload() throws NoSuchFieldException {
+        AnnotatedParameterizedType resultType = (AnnotatedParameterizedType) annotatedType("result");
+        Result<String> source = new Result<>();
+        source.setCode(200);
+        source.setMessage("ok");
+        source.setData("123456@qq.com");
+        assertTrue(ENVELOPE_TYPE_PARSER.support(source, resultType));
+
+        Result<?> copy = assertInstanceOf(Result.class, ENVELOPE_TYPE_PARSER.parse(source, resultType));
+        assertNotSame(source, copy);
+        assertEquals(200, copy.getCode());
+        assertEquals("ok", copy.getMessage());
+        assertEquals(AnnotationParser.parse("123456@qq.com", resultType.getAnnotatedActualTypeArguments()[0]), copy.getData());
+        assertEquals("123456@qq.com", source.getData());
+    }
+
+    /**
+     * 只支持与声明的类型完全一致的响应实体
+     */
+    @Test
+    void supportsOnlyDeclaredType() throws NoSuchFieldException {
+        assertFalse(ENVELOPE_TYPE_PARSER.support(null, annotatedType("result")));
+        assertFalse(ENVELOPE_TYPE_PARSER.support(new Result<>() {
+        }, annotatedType("result")));
+        assertFalse(ENVELOPE_TYPE_PARSER.support("123456@qq.com", annotatedType("result")));
+    }
+
+    /**
+     * 实际数据只能是单个属性，嵌套的属性路径以及不是泛型参数的属性都会导致启动失败
+     */
+    @Test
+    void rejectsInvalidPayload() {
+        assertThrows(IllegalStateException.class, () -> new EnvelopeTypeParser(Map.of(Result.class, "data.value")));
+        assertThrows(IllegalStateException.class, () -> new EnvelopeTypeParser(Map.of(Result.class, "message")));
+        assertThrows(IllegalStateException.class, () -> new EnvelopeTypeParser(Map.of(Result.class, "missing")));
+    }
+
+    /**
+     * 响应实体的配置与{@link DesensitizationProperties}一样支持宽松绑定
+     */
+    @Test
+    void conditionBindsEnvelopes() {
+        contextRunner.run(context -> assertFalse(context.containsBean("envelopes")));
+        contextRunner.withPropertyValues("desensitization.envelopes[0].type=" + Result.class.getName(), "desensitization.envelopes[0].payload=data")
+                .run(context -> assertTrue(context.containsBean("envelopes")));
+        contextRunner.withInitializer(context -> context.getEnvironment().getPropertySources().addFirst(new SystemEnvironmentPropertySource("test-systemEnvironment",
+                        Map.of("DESENSITIZATION_ENVELOPES_0_TYPE", Result.class.getName(), "DESENSITIZATION_ENVELOPES_0_PAYLOAD", "data"))))
+                .run(context -> assertTrue(context.containsBean("envelopes")));
+    }
+
+    private static AnnotatedType annotatedType(String field) throws NoSuchFieldException {
+        return EnvelopeTypeParserTest.class.getDeclaredField(field).getAnnotatedType();
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class EnvelopeConfiguration {
+
+        @Bean
+        @Conditional(DesensitizationAutoConfiguration.EnvelopesCondition.class)
+        public String envelopes() {
+            return "envelopes";
+        }
+    }
+
+    public static class Result<T> {
+
+        private int code;
+
+        private String message;
+
+        private T data;
+
+        public int getCode() {
+            return code;
+        }
+
+        public void setCode(int code) {
+            this.code = code;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+
+        public T getData() {
+            return data;
+        }
+
+        public void setData(T data) {
+            this.data = data;
+        }
+    }
+}
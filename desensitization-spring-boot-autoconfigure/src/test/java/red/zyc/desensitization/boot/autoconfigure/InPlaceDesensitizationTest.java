@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.junit.jupiter.api.Test;
+import red.zyc.desensitization.annotation.Email;
+import red.zyc.parser.AnnotationParser;
+
+import java.lang.reflect.AnnotatedType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zyc
+ */
+class InPlaceDesensitizationTest {
+
+    private static final String EMAIL = "123456@qq.com";
+
+    private List<@Email String> list;
+
+    private Map<String, @Email String> map;
+
+    private @Email String[] array;
+
+    private @Email String email;
+
+    /**
+     * 可变的容器被直接修改，返回的是原容器
+     */
+    @Test
+    void mutatesContainersWithoutCopying() throws NoSuchFieldException {
+        String expected = AnnotationParser.parse(EMAIL, annotatedType("email"));
+
+        List<String> list = new ArrayList<>(List.of(EMAIL));
+        assertTrue(InPlaceDesensitization.container(list, annotatedType("list")));
+        assertSame(list, InPlaceDesensitization.desensitizeContainer(list, annotatedType("list")));
+        assertEquals(List.of(expected), list);
+
+        Map<String, String> map = new HashMap<>(Map.of("email", EMAIL));
+        assertTrue(InPlaceDesensitization.container(map, annotatedType("map")));
+        assertSame(map, InPlaceDesensitization.desensitizeContainer(map, annotatedType("map")));
+        assertEquals(Map.of("email", expected), map);
+
+        String[] array = {EMAIL, null};
+        assertTrue(InPlaceDesensitization.container(array, annotatedType("array")));
+        assertSame(array, InPlaceDesensitization.desensitizeContainer(array, annotatedType("array")));
+        assertArrayEquals(new String[]{expected, null}, array);
+    }
+
+    /**
+     * 级联对象本身不会被复制，需要脱敏的字段被直接修改
+     */
+    @Test
+    void mutatesCascadedObjectWithoutCopying() throws NoSuchFieldException {
+        Person person = new Person();
+        person.email = EMAIL;
+        List<String> emails = new ArrayList<>(List.of(EMAIL));
+        person.emails = emails;
+        assertTrue(InPlaceDesensitization.cascadable(person));
+
+        assertSame(person, InPlaceDesensitization.cascade(person));
+        String expected = AnnotationParser.parse(EMAIL, annotatedType("email"));
+        assertEquals(expected, person.email);
+        assertEquals(AnnotationParser.parse(emails, Person.class.getDeclaredField("emails").getAnnotatedType()), person.emails);
+    }
+
+    /**
+     * 不允许值为{@code null}的Map、不可变的集合以及拥有需要脱敏的final字段的对象无法被原地脱敏
+     */
+    @Test
+    void rejectsUnmodifiableTargets() throws NoSuchFieldException {
+        assertFalse(InPlaceDesensitization.container(new ConcurrentHashMap<>(Map.of("email", EMAIL)), annotatedType("map")));
+        assertFalse(InPlaceDesensitization.container(List.of(EMAIL), annotatedType("list")));
+        assertFalse(InPlaceDesensitization.cascadable(new Contact(EMAIL)));
+    }
+
+    private static AnnotatedType annotatedType(String field) throws NoSuchFieldException {
+        return InPlaceDesensitizationTest.class.getDeclaredField(field).getAnnotatedType();
+    }
+
+    static class Person {
+
+        private @Email String email;
+
+        private List<@Email String> emails;
+    }
+
+    record Contact(@Email String email) {
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import red.zyc.desensitization.Sensitive;
+import red.zyc.desensitization.annotation.Email;
+import red.zyc.desensitization.boot.autoconfigure.DesensitizationJacksonModule.AnnotatedValue;
+import red.zyc.parser.AnnotationParser;
+import red.zyc.parser.type.AnnotatedTypeToken;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zyc
+ */
+class JacksonSerializationDesensitizationTest {
+
+    private Map<@Email String, String> emails;
+
+    @AfterEach
+    void reset() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    /**
+     * Jackson消息转换器注册了{@link DesensitizationJacksonModule}时，被延迟脱敏的响应体交给该模块在序列化时脱敏
+     */
+    @Test
+    void defersToRegisteredModule() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new DesensitizationJacksonModule());
+        JacksonSerializationDesensitization desensitization = desensitization(objectMapper);
+        Method method = method();
+        List<String> body = List.of("123456@qq.com");
+        assertTrue(desensitization.supports(method));
+        bindHandler(method);
+        assertTrue(desensitization.defer(method));
+        assertFalse(desensitization.defer(method));
+
+        AnnotatedValue annotatedValue = assertInstanceOf(AnnotatedValue.class, beforeBodyWrite(desensitization, body, method, MappingJackson2HttpMessageConverter.class));
+        assertSame(body, annotatedValue.value());
+        assertEquals(objectMapper.writeValueAsString(AnnotationParser.parse(body, method.getAnnotatedReturnType())), objectMapper.writeValueAsString(annotatedValue));
+    }
+
+    /**
+     * Jackson消息转换器没有注册{@link DesensitizationJacksonModule}或者最终选择的不是Jackson消息转换器时，在写出之前脱敏响应体
+     */
+    @Test
+    void fallsBackWithoutRegisteredModule() throws Exception {
+        JacksonSerializationDesensitization desensitization = desensitization(new ObjectMapper());
+        Method method = method();
+        List<String> body = List.of("123456@qq.com");
+        Object expected = Sensitive.desensitize(body, AnnotatedTypeToken.of(method.getAnnotatedReturnType()));
+
+        bindHandler(method);
+        assertTrue(desensitization.defer(method));
+        Object written = beforeBodyWrite(desensitization, body, method, MappingJackson2HttpMessageConverter.class);
+        assertFalse(written instanceof AnnotatedValue);
+        assertEquals(expected, written);
+
+        bindHandler(method);
+        assertTrue(desensitization.defer(method));
+        assertEquals(expected, beforeBodyWrite(desensitization, body, method, StringHttpMessageConverter.class));
+
+        RequestContextHolder.resetRequestAttributes();
+        assertFalse(desensitization.defer(method));
+    }
+
+    /**
+     * {@link Map}的键脱敏后为{@code null}时使用Jackson的null键序列化器
+     */
+    @Test
+    void serializesNullMapKey() throws Exception {
+        Map<String, String> map = new HashMap<>();
+        map.put(null, "value");
+        AnnotatedValue annotatedValue = new AnnotatedValue(map, JacksonSerializationDesensitizationTest.class.getDeclaredField("emails").getAnnotatedType());
+
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new DesensitizationJacksonModule());
+        assertThrows(JsonProcessingException.class, () -> objectMapper.writeValueAsString(annotatedValue));
+        objectMapper.getSerializerProvider().setNullKeySerializer(new JsonSerializer<>() {
+
+            @Override
+            public void serialize(Object value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+                generator.writeFieldName("");
+            }
+        });
+        assertEquals("{\"\":\"value\"}", objectMapper.writeValueAsString(annotatedValue));
+    }
+
+    @RequestMapping
+    @ResponseBody
+    public List<@Email String> emails() {
+        return List.of();
+    }
+
+    private static JacksonSerializationDesensitization desensitization(ObjectMapper objectMapper) {
+        RequestMappingHandlerAdapter handlerAdapter = new RequestMappingHandlerAdapter();
+        handlerAdapter.setMessageConverters(List.of(new StringHttpMessageConverter(), new MappingJackson2HttpMessageConverter(objectMapper)));
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("requestMappingHandlerAdapter", handlerAdapter));
+        return new JacksonSerializationDesensitization(beanFactory.getBeanProvider(RequestMappingHandlerAdapter.class));
+    }
+
+    private static Object beforeBodyWrite(JacksonSerializationDesensitization desensitization, Object body, Method method, Class<? extends HttpMessageConverter<?>> converterType) {
+        return desensitization.beforeBodyWrite(body, new MethodParameter(method, -1), MediaType.APPLICATION_JSON, converterType, null, null);
+    }
+
+    private void bindHandler(Method method) {
+        MapRequestAttributes requestAttributes = new MapRequestAttributes();
+        requestAttributes.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, new HandlerMethod(this, method), RequestAttributes.SCOPE_REQUEST);
+        RequestContextHolder.setRequestAttributes(requestAttributes);
+    }
+
+    private static Method method() throws NoSuchMethodException {
+        return JacksonSerializationDesensitizationTest.class.getDeclaredMethod("emails");
+    }
+}
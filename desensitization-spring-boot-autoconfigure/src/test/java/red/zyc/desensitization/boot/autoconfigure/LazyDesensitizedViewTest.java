@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.junit.jupiter.api.Test;
+import red.zyc.desensitization.annotation.Email;
+import red.zyc.parser.AnnotationParser;
+
+import java.lang.reflect.AnnotatedType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zyc
+ */
+class LazyDesensitizedViewTest {
+
+    private @Email String email;
+
+    /**
+     * 在创建视图的上下文关闭之后访问元素，每个元素只会被脱敏一次，并且访问之后不会残留上下文
+     */
+    @Test
+    void listResolvesOnceOutsideCapturingContext() throws NoSuchFieldException {
+        AnnotatedType elementType = annotatedType();
+        List<String> source = new ArrayList<>(Arrays.asList("123456@qq.com", null, "654321@qq.com"));
+        LazyDesensitizedList<String> view = new LazyDesensitizedList<>(source, elementType, capture());
+
+        assertNull(DesensitizationContext.current());
+        assertEquals(3, view.size());
+        assertEquals(AnnotationParser.parse("123456@qq.com", elementType), view.get(0));
+        assertSame(view.get(0), view.get(0));
+        assertNull(view.get(1));
+        assertEquals(AnnotationParser.parse("654321@qq.com", elementType), view.get(2));
+        assertNull(DesensitizationContext.current());
+        assertThrows(UnsupportedOperationException.class, () -> view.set(0, "123456@qq.com"));
+        assertThrows(UnsupportedOperationException.class, () -> view.add("123456@qq.com"));
+    }
+
+    /**
+     * 视图的值只会被脱敏一次，键以及{@code null}值原样保留，并且视图是只读的
+     */
+    @Test
+    void mapResolvesOnceOutsideCapturingContext() throws NoSuchFieldException {
+        AnnotatedType valueType = annotatedType();
+        Map<String, String> source = new LinkedHashMap<>();
+        source.put("email", "123456@qq.com");
+        source.put("empty", null);
+        LazyDesensitizedMap<String, String> view = new LazyDesensitizedMap<>(source, valueType, capture());
+
+        assertEquals(2, view.size());
+        assertEquals(AnnotationParser.parse("123456@qq.com", valueType), view.get("email"));
+        assertSame(view.get("email"), view.entrySet().iterator().next().getValue());
+        assertTrue(view.containsKey("empty"));
+        assertNull(view.get("empty"));
+        assertEquals(List.copyOf(source.keySet()), List.copyOf(view.keySet()));
+        assertNull(DesensitizationContext.current());
+        assertThrows(UnsupportedOperationException.class, () -> view.put("email", "123456@qq.com"));
+    }
+
+    /**
+     * @return 在一个已经关闭的上下文中捕获的设置
+     */
+    private static DesensitizationContext.Settings capture() {
+        DesensitizationContext context = DesensitizationContext.open(null, DesensitizationLimits.NONE, 0, false);
+        try {
+            return DesensitizationContext.capture();
+        } finally {
+            context.close();
+        }
+    }
+
+    private static AnnotatedType annotatedType() throws NoSuchFieldException {
+        return LazyDesensitizedViewTest.class.getDeclaredField("email").getAnnotatedType();
+    }
+}
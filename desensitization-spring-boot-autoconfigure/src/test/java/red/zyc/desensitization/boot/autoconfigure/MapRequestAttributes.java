@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.springframework.web.context.request.RequestAttributes;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 只保存请求属性的{@link RequestAttributes}
+ *
+ * @author zyc
+ */
+class MapRequestAttributes implements RequestAttributes {
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    @Override
+    public Object getAttribute(String name, int scope) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value, int scope) {
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name, int scope) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public String[] getAttributeNames(int scope) {
+        return attributes.keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public void registerDestructionCallback(String name, Runnable callback, int scope) {
+    }
+
+    @Override
+    public Object resolveReference(String key) {
+        return null;
+    }
+
+    @Override
+    public String getSessionId() {
+        return "";
+    }
+
+    @Override
+    public Object getSessionMutex() {
+        return this;
+    }
+}
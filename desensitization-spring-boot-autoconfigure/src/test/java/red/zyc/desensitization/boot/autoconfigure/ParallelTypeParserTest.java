@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import red.zyc.desensitization.annotation.Email;
+import red.zyc.parser.AnnotationParser;
+
+import java.lang.reflect.AnnotatedArrayType;
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zyc
+ */
+class ParallelTypeParserTest {
+
+    private static final ParallelTypeParser PARALLEL_TYPE_PARSER = new ParallelTypeParser(4, 3, Executors.newFixedThreadPool(3));
+
+    private List<@Email String> list;
+
+    private Map<String, @Email String> map;
+
+    private @Email String[] array;
+
+    @AfterAll
+    static void shutdown() {
+        PARALLEL_TYPE_PARSER.destroy();
+    }
+
+    /**
+     * 并行脱敏的结果与逐个顺序脱敏的结果一致，并且保持原来的顺序以及类型
+     */
+    @Test
+    void parallelMatchesSequential() throws NoSuchFieldException {
+        AnnotatedParameterizedType listType = (AnnotatedParameterizedType) annotatedType("list");
+        AnnotatedParameterizedType mapType = (AnnotatedParameterizedType) annotatedType("map");
+        AnnotatedArrayType arrayType = (AnnotatedArrayType) annotatedType("array");
+        AnnotatedType elementType = listType.getAnnotatedActualTypeArguments()[0];
+
+        LinkedList<String> emails = IntStream.range(0, 10).mapToObj(i -> i + "23456@qq.com").collect(LinkedList::new, List::add, List::addAll);
+        List<String> sequential = new ArrayList<>();
+        emails.forEach(email -> sequential.add(AnnotationParser.parse(email, elementType)));
+        Object parallelList = parse(emails, listType);
+        assertInstanceOf(LinkedList.class, parallelList);
+        assertEquals(sequential, parallelList);
+
+        Map<String, String> source = new LinkedHashMap<>();
+        emails.forEach(email -> source.put(email, email));
+        Map<String, String> sequentialMap = new LinkedHashMap<>();
+        source.forEach((key, value) -> sequentialMap.put(key, AnnotationParser.parse(value, mapType.getAnnotatedActualTypeArguments()[1])));
+        Object parallelMap = parse(source, mapType);
+        assertInstanceOf(LinkedHashMap.class, parallelMap);
+        assertEquals(List.copyOf(sequentialMap.entrySet()), List.copyOf(((Map<?, ?>) parallelMap).entrySet()));
+
+        String[] parallelArray = (String[]) parse(emails.toArray(new String[0]), arrayType);
+        assertArrayEquals(sequential.toArray(new String[0]), parallelArray);
+    }
+
+    /**
+     * 并行脱敏的线程使用各自的子上下文，当前线程的上下文保持不变
+     */
+    @Test
+    void keepsCurrentContext() throws NoSuchFieldException {
+        DesensitizationContext context = DesensitizationContext.open(null, DesensitizationLimits.NONE, 0, false);
+        try {
+            assertTrue(PARALLEL_TYPE_PARSER.support(new ArrayList<>(List.of("1", "2", "3", "4")), annotatedType("list")));
+            PARALLEL_TYPE_PARSER.parse(new ArrayList<>(List.of("1", "2", "3", "4")), annotatedType("list"));
+            assertEquals(context, DesensitizationContext.current());
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * 配置了限制、原地脱敏或者正在级联脱敏时不会并行脱敏
+     */
+    @Test
+    void refusesWhenContextCannotBeShared() throws NoSuchFieldException {
+        List<String> emails = new ArrayList<>(List.of("1", "2", "3", "4"));
+        AnnotatedType listType = annotatedType("list");
+        DesensitizationLimits limits = new DesensitizationLimits(100, DesensitizationLimits.Policy.FAIL, -1, DesensitizationLimits.Policy.FAIL,
+                Duration.ofSeconds(1), DesensitizationLimits.Policy.FAIL, null);
+        assertRefused(DesensitizationContext.open(null, limits, 0, false), emails, listType);
+        assertRefused(DesensitizationContext.open(null, DesensitizationLimits.NONE, 0, true), emails, listType);
+        DesensitizationContext cascading = DesensitizationContext.open(null, DesensitizationLimits.NONE, 0, false);
+        cascading.enterCascade();
+        assertRefused(cascading, emails, listType);
+    }
+
+    private static void assertRefused(DesensitizationContext context, Object value, AnnotatedType annotatedType) {
+        try {
+            assertFalse(PARALLEL_TYPE_PARSER.support(value, annotatedType));
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Object parse(Object value, AnnotatedType annotatedType) {
+        assertTrue(PARALLEL_TYPE_PARSER.support(value, annotatedType));
+        return PARALLEL_TYPE_PARSER.parse(value, annotatedType);
+    }
+
+    private static AnnotatedType annotatedType(String field) throws NoSuchFieldException {
+        return ParallelTypeParserTest.class.getDeclaredField(field).getAnnotatedType();
+    }
+}
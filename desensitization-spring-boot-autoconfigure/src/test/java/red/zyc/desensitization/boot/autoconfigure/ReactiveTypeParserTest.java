@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import red.zyc.desensitization.annotation.Email;
+import red.zyc.parser.AnnotationParser;
+
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zyc
+ */
+class ReactiveTypeParserTest {
+
+    private Flux<@Email String> flux;
+
+    private Mono<@Email String> mono;
+
+    private Publisher<@Email String> publisher;
+
+    /**
+     * {@link Flux}的元素在订阅之后才会被逐个脱敏
+     */
+    @Test
+    void desensitizesFluxElementsOnSubscription() throws NoSuchFieldException {
+        AnnotatedParameterizedType annotatedType = annotatedType("flux");
+        AtomicInteger subscriptions = new AtomicInteger();
+        Flux<Object> original = Flux.defer(() -> {
+            subscriptions.incrementAndGet();
+            return Flux.just("123456@qq.com", "654321@qq.com");
+        });
+        Flux<Object> desensitized = new FluxTypeParser().parse(original, annotatedType);
+        assertEquals(0, subscriptions.get());
+        assertEquals(List.of(expected(annotatedType, "123456@qq.com"), expected(annotatedType, "654321@qq.com")), desensitized.collectList().block());
+        assertEquals(1, subscriptions.get());
+    }
+
+    /**
+     * {@link Mono}的元素在发出时被脱敏，空的{@link Mono}仍然是空的
+     */
+    @Test
+    void desensitizesMonoElement() throws NoSuchFieldException {
+        AnnotatedParameterizedType annotatedType = annotatedType("mono");
+        MonoTypeParser parser = new MonoTypeParser();
+        assertEquals(expected(annotatedType, "123456@qq.com"), parser.parse(Mono.just("123456@qq.com"), annotatedType).block());
+        assertFalse(parser.parse(Mono.empty(), annotatedType).hasElement().block());
+    }
+
+    /**
+     * 只有声明类型恰好是{@link Publisher}的对象才会被转换为{@link Flux}
+     */
+    @Test
+    void desensitizesDeclaredPublisher() throws NoSuchFieldException {
+        AnnotatedParameterizedType annotatedType = annotatedType("publisher");
+        PublisherTypeParser parser = new PublisherTypeParser();
+        Publisher<Object> original = subscriber -> Flux.<Object>just("123456@qq.com").subscribe(subscriber);
+        assertTrue(parser.support(original, annotatedType));
+        assertFalse(parser.support(original, annotatedType("flux")));
+        assertEquals(List.of(expected(annotatedType, "123456@qq.com")), Flux.from(parser.parse(original, annotatedType)).collectList().block());
+    }
+
+    private static Object expected(AnnotatedParameterizedType annotatedType, String value) {
+        return AnnotationParser.parse(value, annotatedType.getAnnotatedActualTypeArguments()[0]);
+    }
+
+    private static AnnotatedParameterizedType annotatedType(String field) throws NoSuchFieldException {
+        return (AnnotatedParameterizedType) ReactiveTypeParserTest.class.getDeclaredField(field).getAnnotatedType();
+    }
+}
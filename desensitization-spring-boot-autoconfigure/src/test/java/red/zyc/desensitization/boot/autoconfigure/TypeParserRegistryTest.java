@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.autoconfigure;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import red.zyc.parser.type.TypeParser;
+
+import java.lang.reflect.AnnotatedType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zyc
+ */
+class TypeParserRegistryTest {
+
+    private static final AnnotatedType ANNOTATED_TYPE = String.class.getAnnotatedSuperclass();
+
+    private final Object owner = new Object();
+
+    private final Object anotherOwner = new Object();
+
+    private final List<String> calls = new ArrayList<>();
+
+    @AfterEach
+    void unregister() {
+        TypeParserRegistry.INSTANCE.unregister(owner);
+        TypeParserRegistry.INSTANCE.unregister(anotherOwner);
+    }
+
+    /**
+     * 本项目提供的类型解析器的顺序是固定的
+     */
+    @Test
+    void builtinTypeParserOrders() {
+        ParallelTypeParser parallelTypeParser = new ParallelTypeParser(1, 1, ForkJoinPool.commonPool());
+        assertEquals(TypeParserOrders.CASCADE, new CascadeTypeParser().order());
+        assertEquals(TypeParserOrders.PARALLEL, parallelTypeParser.order());
+        assertEquals(TypeParserOrders.CONTAINER, new ResponseEntityTypeParser().order());
+        assertEquals(TypeParserOrders.CONTAINER, new DeferredResultTypeParser().order());
+        assertTrue(TypeParserOrders.CASCADE < TypeParserOrders.PARALLEL);
+        assertTrue(TypeParserOrders.PARALLEL < 0 && 0 < TypeParserOrders.CONTAINER);
+        assertTrue(TypeParserOrders.CONTAINER < TypeParserOrders.GENERATED);
+    }
+
+    /**
+     * 类型解析器按照顺序被调用，顺序相同时保持登记时的顺序
+     */
+    @Test
+    void supportFollowsOrder() {
+        TypeParserRegistry.INSTANCE.register(owner, List.of(
+                new RecordingTypeParser("container", TypeParserOrders.CONTAINER, false),
+                new RecordingTypeParser("custom1", 0, false),
+                new RecordingTypeParser("cascade", TypeParserOrders.CASCADE, false),
+                new RecordingTypeParser("custom2", 0, false),
+                new RecordingTypeParser("parallel", TypeParserOrders.PARALLEL, false)));
+        assertFalse(TypeParserRegistry.INSTANCE.support("value", ANNOTATED_TYPE));
+        assertEquals(List.of("cascade", "parallel", "custom1", "custom2", "container"), calls);
+    }
+
+    /**
+     * 只会使用当前脱敏上下文所属的spring上下文登记的类型解析器
+     */
+    @Test
+    void supportOnlyConsultsOwner() {
+        TypeParserRegistry.INSTANCE.register(owner, List.of(new RecordingTypeParser("owner", 0, true)));
+        TypeParserRegistry.INSTANCE.register(anotherOwner, List.of(new RecordingTypeParser("anotherOwner", 0, true)));
+        DesensitizationContext context = DesensitizationContext.open(owner, DesensitizationLimits.NONE, 0, false);
+        try {
+            assertTrue(TypeParserRegistry.INSTANCE.support("value", ANNOTATED_TYPE));
+            assertEquals("owner", TypeParserRegistry.INSTANCE.parse("value", ANNOTATED_TYPE));
+        } finally {
+            context.close();
+        }
+        assertEquals(List.of("owner"), calls);
+        calls.clear();
+        assertTrue(TypeParserRegistry.INSTANCE.support("value", ANNOTATED_TYPE));
+        assertEquals("anotherOwner", TypeParserRegistry.INSTANCE.parse("value", ANNOTATED_TYPE));
+        assertEquals(List.of("anotherOwner"), calls);
+    }
+
+    /**
+     * 没有指定所有者时使用最近登记的所有者，该所有者被移除后回退到在它之前登记的所有者，全部移除后不再支持任何对象
+     */
+    @Test
+    void defaultRegistrationFallsBack() {
+        TypeParserRegistry.INSTANCE.register(owner, List.of(new RecordingTypeParser("owner", 0, true)));
+        TypeParserRegistry.INSTANCE.register(anotherOwner, List.of(new RecordingTypeParser("anotherOwner", 0, true)));
+        assertTrue(TypeParserRegistry.INSTANCE.support("value", ANNOTATED_TYPE));
+        assertEquals("anotherOwner", TypeParserRegistry.INSTANCE.parse("value", ANNOTATED_TYPE));
+
+        TypeParserRegistry.INSTANCE.register(owner, List.of(new RecordingTypeParser("owner", 0, true)));
+        assertTrue(TypeParserRegistry.INSTANCE.support("value", ANNOTATED_TYPE));
+        assertEquals("owner", TypeParserRegistry.INSTANCE.parse("value", ANNOTATED_TYPE));
+
+        TypeParserRegistry.INSTANCE.unregister(owner);
+        assertTrue(TypeParserRegistry.INSTANCE.support("value", ANNOTATED_TYPE));
+        assertEquals("anotherOwner", TypeParserRegistry.INSTANCE.parse("value", ANNOTATED_TYPE));
+
+        TypeParserRegistry.INSTANCE.unregister(anotherOwner);
+        calls.clear();
+        assertFalse(TypeParserRegistry.INSTANCE.support("value", ANNOTATED_TYPE));
+        assertEquals(List.of(), calls);
+    }
+
+    private class RecordingTypeParser implements TypeParser<Object, AnnotatedType> {
+
+        private final String name;
+
+        private final int order;
+
+        private final boolean support;
+
+        RecordingTypeParser(String name, int order, boolean support) {
+            this.name = name;
+            this.order = order;
+            this.support = support;
+        }
+
+        @Override
+        public Object parse(Object value, AnnotatedType annotatedType) {
+            return name;
+        }
+
+        @Override
+        public boolean support(Object value, AnnotatedType annotatedType) {
+            calls.add(name);
+            return support;
+        }
+
+        @Override
+        public int order() {
+            return order;
+        }
+    }
+}
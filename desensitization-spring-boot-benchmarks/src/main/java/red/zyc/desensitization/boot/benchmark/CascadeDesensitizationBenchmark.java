@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import red.zyc.desensitization.Sensitive;
+import red.zyc.desensitization.boot.autoconfigure.GeneratedCascadeTypeParser;
+import red.zyc.desensitization.boot.benchmark.model.Employee;
+import red.zyc.parser.AnnotationParser;
+import red.zyc.parser.type.AnnotatedTypeToken;
+import red.zyc.parser.type.Cascade;
+
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 级联脱敏不同深度的{@link Employee}对象图的开销，分别测试通过反射级联脱敏以及通过编译期生成的
+ * {@link GeneratedCascadeTypeParser}级联脱敏。每组参数都在单独的JVM中运行，所以注册的类型解析器不会互相影响。
+ *
+ * @author zyc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CascadeDesensitizationBenchmark {
+
+    private final AnnotatedTypeToken<Employee> typeToken = new AnnotatedTypeToken<@Cascade Employee>() {
+    };
+
+    @Param({"1", "4", "16", "64"})
+    private int depth;
+
+    @Param({"false", "true"})
+    private boolean generated;
+
+    private Employee employee;
+
+    @Setup
+    public void setup() {
+        TypeParsers.register();
+        if (generated) {
+            ServiceLoader.load(GeneratedCascadeTypeParser.class).forEach(AnnotationParser::addTypeParser);
+        }
+        employee = Employee.chain(depth);
+    }
+
+    @Benchmark
+    public Employee desensitize() {
+        return Sensitive.desensitize(employee, typeToken);
+    }
+}
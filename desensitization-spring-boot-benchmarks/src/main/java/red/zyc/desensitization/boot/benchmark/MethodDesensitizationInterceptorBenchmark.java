@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.http.ResponseEntity;
+import red.zyc.desensitization.annotation.Email;
+import red.zyc.desensitization.boot.autoconfigure.MethodDesensitizationInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MethodDesensitizationInterceptor}拦截方法调用的开销
+ *
+ * @author zyc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodDesensitizationInterceptorBenchmark {
+
+    private static final String EMAIL = "123456@qq.com";
+
+    private PersonService target;
+
+    private PersonService proxy;
+
+    @Setup
+    public void setup() {
+        TypeParsers.register();
+        target = new PersonService();
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new MethodDesensitizationInterceptor());
+        proxy = (PersonService) proxyFactory.getProxy();
+    }
+
+    /**
+     * 直接调用目标方法，作为其它基准测试的参照
+     */
+    @Benchmark
+    public String baseline() {
+        return target.plain(EMAIL);
+    }
+
+    /**
+     * 被代理的方法没有任何敏感注解
+     */
+    @Benchmark
+    public String noSensitiveAnnotation() {
+        return proxy.plain(EMAIL);
+    }
+
+    /**
+     * 被代理的方法参数需要脱敏
+     */
+    @Benchmark
+    public String sensitiveParameter() {
+        return proxy.parameter(EMAIL);
+    }
+
+    /**
+     * 被代理的方法返回值类型为{@code ResponseEntity<@Email String>}
+     */
+    @Benchmark
+    public ResponseEntity<String> sensitiveResponseEntity() {
+        return proxy.responseEntity(EMAIL);
+    }
+
+    public static class PersonService {
+
+        public String plain(String email) {
+            return email;
+        }
+
+        public String parameter(@Email String email) {
+            return email;
+        }
+
+        public ResponseEntity<@Email String> responseEntity(String email) {
+            return ResponseEntity.ok(email);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import red.zyc.desensitization.Sensitive;
+import red.zyc.desensitization.annotation.Email;
+import red.zyc.desensitization.boot.autoconfigure.ResponseEntityTypeParser;
+import red.zyc.parser.type.AnnotatedTypeToken;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过{@link ResponseEntityTypeParser}脱敏{@code ResponseEntity<@Email String>}的开销
+ *
+ * @author zyc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseEntityTypeParserBenchmark {
+
+    private final AnnotatedTypeToken<ResponseEntity<String>> typeToken = new AnnotatedTypeToken<ResponseEntity<@Email String>>() {
+    };
+
+    private ResponseEntity<String> responseEntity;
+
+    @Setup
+    public void setup() {
+        TypeParsers.register();
+        responseEntity = ResponseEntity.ok("123456@qq.com");
+    }
+
+    @Benchmark
+    public ResponseEntity<String> desensitize() {
+        return Sensitive.desensitize(responseEntity, typeToken);
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.benchmark;
+
+import red.zyc.desensitization.boot.autoconfigure.ResponseEntityTypeParser;
+import red.zyc.parser.AnnotationParser;
+
+/**
+ * 基准测试不会启动spring上下文，所以需要手动注册自动配置中提供的类型解析器
+ *
+ * @author zyc
+ */
+final class TypeParsers {
+
+    static {
+        AnnotationParser.addTypeParser(new ResponseEntityTypeParser());
+    }
+
+    private TypeParsers() {
+    }
+
+    /**
+     * 注册类型解析器，多次调用只会注册一次
+     */
+    static void register() {
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.benchmark.model;
+
+import red.zyc.desensitization.annotation.Email;
+import red.zyc.desensitization.annotation.PhoneNumber;
+import red.zyc.parser.type.Cascade;
+
+/**
+ * 用来构造任意深度级联脱敏对象图的员工，每个员工都级联引用其上级
+ *
+ * @author zyc
+ */
+public class Employee {
+
+    @PhoneNumber
+    private String phoneNumber;
+
+    @Email
+    private String email;
+
+    @Cascade
+    private Employee manager;
+
+    public Employee() {
+    }
+
+    public Employee(String phoneNumber, String email, Employee manager) {
+        this.phoneNumber = phoneNumber;
+        this.email = email;
+        this.manager = manager;
+    }
+
+    /**
+     * 构造一个指定深度的员工链
+     *
+     * @param depth 深度
+     * @return 链条最底层的员工
+     */
+    public static Employee chain(int depth) {
+        Employee employee = null;
+        for (int i = 0; i < depth; i++) {
+            employee = new Employee("12345678910", "123456@qq.com", employee);
+        }
+        return employee;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public Employee getManager() {
+        return manager;
+    }
+
+    public void setManager(Employee manager) {
+        this.manager = manager;
+    }
+}
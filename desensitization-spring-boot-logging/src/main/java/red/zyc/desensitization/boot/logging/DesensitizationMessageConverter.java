@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.logging;
+
+import ch.qos.logback.classic.pattern.MessageConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import org.slf4j.helpers.MessageFormatter;
+import red.zyc.desensitization.boot.autoconfigure.ObjectDesensitization;
+
+/**
+ * 对日志参数进行脱敏的Logback消息转换器，用来代替默认的{@code %msg}、{@code %message}以及{@code %m}转换器：
+ * <pre>
+ * &lt;conversionRule conversionWord="msg" converterClass="red.zyc.desensitization.boot.logging.DesensitizationMessageConverter"/&gt;
+ * </pre>
+ * 转换器只会在日志事件被某个appender格式化时才会被调用，所以未启用的日志级别不会产生任何额外的开销。
+ * 只有类中声明了需要脱敏的字段的参数才会被脱敏，如果日志参数都不需要脱敏则直接复用日志事件已经格式化好的消息。
+ *
+ * @author zyc
+ * @see ObjectDesensitization
+ */
+public class DesensitizationMessageConverter extends MessageConverter {
+
+    @Override
+    public String convert(ILoggingEvent event) {
+        Object[] arguments = event.getArgumentArray();
+        Object[] desensitized = ObjectDesensitization.desensitize(arguments);
+        return desensitized == arguments ? event.getFormattedMessage() : MessageFormatter.basicArrayFormat(event.getMessage(), desensitized);
+    }
+}
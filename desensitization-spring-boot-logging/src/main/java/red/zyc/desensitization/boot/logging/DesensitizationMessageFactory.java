@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.logging;
+
+import org.apache.logging.log4j.message.AbstractMessageFactory;
+import org.apache.logging.log4j.message.Message;
+import red.zyc.desensitization.boot.autoconfigure.ObjectDesensitization;
+
+/**
+ * 对日志参数进行脱敏的Log4j2消息工厂，通过{@code log4j2.component.properties}或者系统属性启用：
+ * <pre>
+ * log4j2.messageFactory=red.zyc.desensitization.boot.logging.DesensitizationMessageFactory
+ * </pre>
+ * Log4j2只会在日志级别启用之后才会通过消息工厂构造消息，并且构造的{@link DesensitizedMessage}直到被格式化时才会对参数进行脱敏，
+ * 所以未启用的日志级别以及被过滤掉的日志事件不会产生任何额外的开销。没有格式字符串的{@code logger.info(object)}同样会通过
+ * {@link DesensitizedObjectMessage}延迟脱敏，字符串消息则不需要脱敏。
+ *
+ * @author zyc
+ * @see ObjectDesensitization
+ */
+public class DesensitizationMessageFactory extends AbstractMessageFactory {
+
+    @Override
+    public Message newMessage(Object message) {
+        return message instanceof CharSequence ? super.newMessage(message) : new DesensitizedObjectMessage(message);
+    }
+
+    @Override
+    public Message newMessage(String message, Object... params) {
+        return new DesensitizedMessage(message, params);
+    }
+}
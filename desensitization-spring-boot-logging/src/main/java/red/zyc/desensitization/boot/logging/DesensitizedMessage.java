@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.logging;
+
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+import red.zyc.desensitization.boot.autoconfigure.ObjectDesensitization;
+
+/**
+ * 延迟脱敏的参数化消息，参数只会在消息第一次被格式化时脱敏一次。
+ *
+ * @author zyc
+ * @see DesensitizationMessageFactory
+ */
+class DesensitizedMessage implements Message, StringBuilderFormattable {
+
+    private final String format;
+
+    private final Object[] parameters;
+
+    /**
+     * 参数脱敏后的消息
+     */
+    private volatile ParameterizedMessage desensitized;
+
+    DesensitizedMessage(String format, Object[] parameters) {
+        this.format = format;
+        this.parameters = parameters;
+    }
+
+    @Override
+    public String getFormattedMessage() {
+        return desensitized().getFormattedMessage();
+    }
+
+    @Override
+    public void formatTo(StringBuilder buffer) {
+        desensitized().formatTo(buffer);
+    }
+
+    @Override
+    public String getFormat() {
+        return format;
+    }
+
+    @Override
+    public Object[] getParameters() {
+        return desensitized().getParameters();
+    }
+
+    @Override
+    public Throwable getThrowable() {
+        return desensitized().getThrowable();
+    }
+
+    private ParameterizedMessage desensitized() {
+        ParameterizedMessage message = desensitized;
+        if (message == null) {
+            desensitized = message = new ParameterizedMessage(format, ObjectDesensitization.desensitize(parameters));
+        }
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return getFormattedMessage();
+    }
+}
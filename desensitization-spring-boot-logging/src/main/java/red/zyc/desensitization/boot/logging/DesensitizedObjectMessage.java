@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.logging;
+
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ObjectMessage;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+import red.zyc.desensitization.boot.autoconfigure.ObjectDesensitization;
+
+/**
+ * 延迟脱敏的对象消息，对应{@code logger.info(object)}这种没有格式字符串的日志，对象只会在消息第一次被格式化时脱敏一次。
+ *
+ * @author zyc
+ * @see DesensitizationMessageFactory
+ */
+class DesensitizedObjectMessage implements Message, StringBuilderFormattable {
+
+    private final Object object;
+
+    /**
+     * 对象脱敏后的消息
+     */
+    private volatile ObjectMessage desensitized;
+
+    DesensitizedObjectMessage(Object object) {
+        this.object = object;
+    }
+
+    @Override
+    public String getFormattedMessage() {
+        return desensitized().getFormattedMessage();
+    }
+
+    @Override
+    public void formatTo(StringBuilder buffer) {
+        desensitized().formatTo(buffer);
+    }
+
+    @Override
+    public String getFormat() {
+        return desensitized().getFormat();
+    }
+
+    @Override
+    public Object[] getParameters() {
+        return desensitized().getParameters();
+    }
+
+    @Override
+    public Throwable getThrowable() {
+        return object instanceof Throwable throwable ? throwable : null;
+    }
+
+    private ObjectMessage desensitized() {
+        ObjectMessage message = desensitized;
+        if (message == null) {
+            desensitized = message = new ObjectMessage(ObjectDesensitization.desensitize(object));
+        }
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return getFormattedMessage();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.MessageFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author zyc
+ */
+class DesensitizationMessageConverterTest {
+
+    private final DesensitizationMessageConverter converter = new DesensitizationMessageConverter();
+
+    private final LoggerContext loggerContext = new LoggerContext();
+
+    /**
+     * 类中声明了需要脱敏的字段的参数被级联脱敏之后再格式化
+     */
+    @Test
+    void desensitizesArguments() {
+        User user = new User("123456@qq.com");
+        String message = converter.convert(event("user: {}, id: {}", user, 1));
+        assertEquals(MessageFormatter.basicArrayFormat("user: {}, id: {}", new Object[]{user.desensitized(), 1}), message);
+    }
+
+    /**
+     * 不需要脱敏的参数原样格式化
+     */
+    @Test
+    void keepsPlainArguments() {
+        assertEquals("email: 123456@qq.com, id: 1", converter.convert(event("email: {}, id: {}", "123456@qq.com", 1)));
+        assertEquals("no arguments", converter.convert(event("no arguments")));
+    }
+
+    private LoggingEvent event(String format, Object... arguments) {
+        return new LoggingEvent(DesensitizationMessageConverterTest.class.getName(), loggerContext.getLogger(DesensitizationMessageConverterTest.class),
+                Level.INFO, format, null, arguments.length == 0 ? null : arguments);
+    }
+}
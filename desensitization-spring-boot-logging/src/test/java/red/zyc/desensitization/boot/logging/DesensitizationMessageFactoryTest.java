@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.logging;
+
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ObjectMessage;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * @author zyc
+ */
+class DesensitizationMessageFactoryTest {
+
+    private final DesensitizationMessageFactory messageFactory = new DesensitizationMessageFactory();
+
+    /**
+     * 参数化消息以及对象消息中类中声明了需要脱敏的字段的对象被级联脱敏
+     */
+    @Test
+    void desensitizesParameters() {
+        User user = new User("123456@qq.com");
+        Message message = messageFactory.newMessage("user: {}, id: {}", user, 1);
+        assertEquals(new ParameterizedMessage("user: {}, id: {}", user.desensitized(), 1).getFormattedMessage(), message.getFormattedMessage());
+
+        Message objectMessage = messageFactory.newMessage((Object) List.of(user));
+        assertEquals(new ObjectMessage(List.of(user.desensitized())).getFormattedMessage(), objectMessage.getFormattedMessage());
+    }
+
+    /**
+     * 不需要脱敏的参数原样保留，异常参数仍然作为消息的异常
+     */
+    @Test
+    void keepsPlainParameters() {
+        IllegalStateException exception = new IllegalStateException();
+        Object[] parameters = {"123456@qq.com", 1, exception};
+        Message message = messageFactory.newMessage("email: {}, id: {}", parameters);
+        assertEquals("email: 123456@qq.com, id: 1", message.getFormattedMessage());
+        assertArrayEquals(parameters, message.getParameters());
+        assertSame(exception, message.getThrowable());
+        assertEquals("plain", messageFactory.newMessage((Object) "plain").getFormattedMessage());
+    }
+}
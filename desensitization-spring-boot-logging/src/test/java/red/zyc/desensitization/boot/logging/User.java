@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.logging;
+
+import red.zyc.desensitization.Sensitive;
+import red.zyc.desensitization.annotation.Email;
+import red.zyc.parser.type.AnnotatedTypeToken;
+import red.zyc.parser.type.Cascade;
+
+/**
+ * 类中声明了需要脱敏的字段的日志参数
+ *
+ * @author zyc
+ */
+class User {
+
+    private static final AnnotatedTypeToken<Object> CASCADE = new AnnotatedTypeToken<@Cascade Object>() {
+    };
+
+    private @Email String email;
+
+    User(String email) {
+        this.email = email;
+    }
+
+    /**
+     * @return 与日志参数的脱敏方式一致，通过{@link Sensitive}级联脱敏后的对象
+     */
+    Object desensitized() {
+        return Sensitive.desensitize(this, CASCADE);
+    }
+
+    @Override
+    public String toString() {
+        return "User{email=" + email + "}";
+    }
+}
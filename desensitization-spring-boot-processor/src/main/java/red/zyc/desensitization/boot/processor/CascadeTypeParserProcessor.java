@@ -0,0 +1,395 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * 在编译期为所有{@code @Cascade}目标类生成{@code GeneratedCascadeTypeParser}的注解处理器。
+ * 目标类是指在当前编译的源码中，字段、方法参数或者方法返回值（包括它们的泛型参数以及数组元素）上标注了
+ * {@code @Cascade}注解的类。生成的类型解析器与目标类位于同一个包中，直接读写目标类的字段或者通过其getter、setter方法
+ * 构造脱敏后的新对象；对于没有任何属性需要继续级联脱敏的类，还会生成按列批量脱敏多个对象的代码。
+ * 生成的类型解析器通过{@code META-INF/services}声明，以便自动配置将其注册为spring上下文中的bean。
+ * <p>
+ * 以下目标类不会生成类型解析器，它们在运行时仍然通过反射被级联脱敏：
+ * <ul>
+ *     <li>抽象类、接口、枚举以及带有泛型参数的类</li>
+ *     <li>在生成的类型解析器所在的包中无法访问的类、无参构造器或者字段，并且字段没有可访问的getter、setter方法</li>
+ *     <li>含有final实例字段或者同名字段的类</li>
+ * </ul>
+ *
+ * @author zyc
+ */
+@SupportedAnnotationTypes("*")
+public class CascadeTypeParserProcessor extends AbstractProcessor {
+
+    static final String CASCADE = "red.zyc.parser.type.Cascade";
+    static final String PARSE = "red.zyc.parser.handler.Parse";
+    static final String GENERATED_CASCADE_TYPE_PARSER = "red.zyc.desensitization.boot.autoconfigure.GeneratedCascadeTypeParser";
+    private static final String SERVICE_FILE = "META-INF/services/" + GENERATED_CASCADE_TYPE_PARSER;
+
+    /**
+     * 已经处理过的目标类
+     */
+    private final Set<String> processed = new HashSet<>();
+
+    /**
+     * 生成的类型解析器的全限定名
+     */
+    private final Set<String> generated = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeServiceFile();
+            return false;
+        }
+        Set<TypeElement> sources = new LinkedHashSet<>();
+        ElementFilter.typesIn(roundEnv.getRootElements()).forEach(type -> collectTypes(type, sources));
+        Set<TypeElement> targets = new LinkedHashSet<>();
+        sources.forEach(type -> scan(type, targets));
+        targets.stream()
+                .filter(sources::contains)
+                .filter(target -> processed.add(target.getQualifiedName().toString()))
+                .forEach(this::generate);
+        return false;
+    }
+
+    /**
+     * 收集类及其所有嵌套类
+     */
+    private void collectTypes(TypeElement type, Set<TypeElement> types) {
+        types.add(type);
+        ElementFilter.typesIn(type.getEnclosedElements()).forEach(nested -> collectTypes(nested, types));
+    }
+
+    /**
+     * 查找类的字段、方法参数以及方法返回值中标注了{@code @Cascade}注解的类
+     */
+    private void scan(TypeElement type, Set<TypeElement> targets) {
+        for (Element element : type.getEnclosedElements()) {
+            if (element.getKind() == ElementKind.FIELD) {
+                collectTargets(element, element.asType(), targets);
+            } else if (element instanceof ExecutableElement executable) {
+                executable.getParameters().forEach(parameter -> collectTargets(parameter, parameter.asType(), targets));
+                collectTargets(executable, executable.getReturnType(), targets);
+            }
+        }
+    }
+
+    private void collectTargets(Element element, TypeMirror type, Set<TypeElement> targets) {
+        if (type.getKind() == TypeKind.DECLARED && hasAnnotation(element.getAnnotationMirrors(), CASCADE)) {
+            targets.add((TypeElement) ((DeclaredType) type).asElement());
+        }
+        collectTargets(type, targets);
+    }
+
+    private void collectTargets(TypeMirror type, Set<TypeElement> targets) {
+        if (type instanceof DeclaredType declaredType) {
+            if (hasAnnotation(type.getAnnotationMirrors(), CASCADE)) {
+                targets.add((TypeElement) declaredType.asElement());
+            }
+            declaredType.getTypeArguments().forEach(typeArgument -> collectTargets(typeArgument, targets));
+        } else if (type instanceof ArrayType arrayType) {
+            collectTargets(arrayType.getComponentType(), targets);
+        } else if (type instanceof WildcardType wildcardType) {
+            Optional.ofNullable(wildcardType.getExtendsBound()).ifPresent(bound -> collectTargets(bound, targets));
+            Optional.ofNullable(wildcardType.getSuperBound()).ifPresent(bound -> collectTargets(bound, targets));
+        }
+    }
+
+    /**
+     * 为目标类生成类型解析器，无法生成时输出一条提示
+     */
+    private void generate(TypeElement target) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(target);
+        String skipped = skipReason(target, packageElement);
+        List<Property> properties = new ArrayList<>();
+        if (skipped == null) {
+            skipped = target.getKind() == ElementKind.RECORD ? recordProperties(target, properties) : classProperties(target, packageElement, properties);
+        }
+        if (skipped != null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "没有为" + target.getQualifiedName() + "生成类型解析器，" + skipped, target);
+            return;
+        }
+        String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        String simpleName = target.getQualifiedName().toString().substring(packageName.isEmpty() ? 0 : packageName.length() + 1).replace('.', '_') + "CascadeTypeParser";
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        try {
+            try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, target).openWriter()) {
+                writer.write(new CascadeTypeParserSource(packageName, simpleName, target, properties).render());
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "无法生成" + qualifiedName + "：" + e.getMessage(), target);
+            return;
+        }
+        generated.add(qualifiedName);
+    }
+
+    /**
+     * @return 目标类本身不支持生成类型解析器的原因，支持则返回{@code null}
+     */
+    private String skipReason(TypeElement target, PackageElement packageElement) {
+        if (target.getKind() != ElementKind.CLASS && target.getKind() != ElementKind.RECORD) {
+            return "只支持类以及记录类";
+        }
+        if (target.getModifiers().contains(Modifier.ABSTRACT)) {
+            return "不支持抽象类";
+        }
+        if (!target.getTypeParameters().isEmpty()) {
+            return "不支持带有泛型参数的类";
+        }
+        for (Element element = target; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            if (!accessible(element, packageElement)) {
+                return element.getSimpleName() + "无法被访问";
+            }
+            if (element.getKind() == ElementKind.CLASS && element.getEnclosingElement() instanceof TypeElement && !element.getModifiers().contains(Modifier.STATIC)) {
+                return "不支持非静态内部类";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 解析记录类的组件，脱敏后的对象通过规范构造器构造
+     */
+    private String recordProperties(TypeElement target, List<Property> properties) {
+        for (RecordComponentElement component : target.getRecordComponents()) {
+            properties.add(new Property(target, component.getSimpleName().toString(), false, component.getAccessor().getSimpleName() + "()", null,
+                    needDesensitized(component, component.asType()), cascade(component, component.asType())));
+        }
+        return null;
+    }
+
+    /**
+     * 解析类及其父类的所有实例字段，脱敏后的对象通过无参构造器构造
+     */
+    private String classProperties(TypeElement target, PackageElement packageElement, List<Property> properties) {
+        boolean constructor = ElementFilter.constructorsIn(target.getEnclosedElements()).stream()
+                .anyMatch(candidate -> candidate.getParameters().isEmpty() && accessible(candidate, packageElement));
+        if (!constructor) {
+            return "不存在可访问的无参构造器";
+        }
+        Set<String> names = new HashSet<>();
+        for (TypeElement type = target; type != null; type = superclass(type)) {
+            if (!accessible(type, packageElement)) {
+                return type.getSimpleName() + "无法被访问";
+            }
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                if (field.getModifiers().contains(Modifier.STATIC)) {
+                    continue;
+                }
+                String name = field.getSimpleName().toString();
+                if (field.getModifiers().contains(Modifier.FINAL)) {
+                    return "字段" + name + "是final的";
+                }
+                if (!names.add(name)) {
+                    return "存在同名字段" + name;
+                }
+                boolean direct = accessible(field, packageElement);
+                String getter = direct ? name : accessor(type, packageElement, field, false);
+                String setter = direct ? name : accessor(type, packageElement, field, true);
+                if (getter == null || setter == null) {
+                    return "字段" + name + "无法被访问并且没有可访问的getter、setter方法";
+                }
+                properties.add(new Property(type, name, direct, getter, setter, needDesensitized(field, field.asType()), cascade(field, field.asType())));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 字段的getter方法调用表达式，例如{@code getName()}；或者setter方法名称，例如{@code setName}；不存在则返回{@code null}
+     */
+    private String accessor(TypeElement type, PackageElement packageElement, VariableElement field, boolean setter) {
+        String name = field.getSimpleName().toString();
+        String capitalized = name.substring(0, 1).toUpperCase(Locale.ROOT) + name.substring(1);
+        List<String> candidates = setter ? List.of("set" + capitalized)
+                : field.asType().getKind() == TypeKind.BOOLEAN ? List.of("is" + capitalized, "get" + capitalized) : List.of("get" + capitalized);
+        return ElementFilter.methodsIn(type.getEnclosedElements()).stream()
+                .filter(method -> candidates.contains(method.getSimpleName().toString()))
+                .filter(method -> !method.getModifiers().contains(Modifier.STATIC) && accessible(method, packageElement))
+                .filter(method -> setter
+                        ? method.getParameters().size() == 1 && processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), field.asType())
+                        : method.getParameters().isEmpty() && processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.asType()))
+                .findFirst()
+                .map(method -> setter ? method.getSimpleName().toString() : method.getSimpleName() + "()")
+                .orElse(null);
+    }
+
+    private TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (!(superclass instanceof DeclaredType declaredType)) {
+            return null;
+        }
+        TypeElement element = (TypeElement) declaredType.asElement();
+        return element.getQualifiedName().contentEquals(Object.class.getName()) ? null : element;
+    }
+
+    /**
+     * @return 元素在生成的类型解析器所在的包中是否可以被访问
+     */
+    private boolean accessible(Element element, PackageElement packageElement) {
+        Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        return !modifiers.contains(Modifier.PRIVATE) && processingEnv.getElementUtils().getPackageOf(element).equals(packageElement);
+    }
+
+    /**
+     * 与运行时判断对象是否需要脱敏的逻辑一致：元素或其类型（包括泛型参数以及数组元素）上标注了敏感注解或者{@code @Cascade}注解
+     */
+    private boolean needDesensitized(Element element, TypeMirror type) {
+        return annotated(element, type, this::sensitive);
+    }
+
+    /**
+     * @return 元素或其类型（包括泛型参数以及数组元素）上是否标注了{@code @Cascade}注解
+     */
+    private boolean cascade(Element element, TypeMirror type) {
+        return annotated(element, type, annotation -> ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(CASCADE));
+    }
+
+    private boolean annotated(Element element, TypeMirror type, Predicate<AnnotationMirror> predicate) {
+        return element.getAnnotationMirrors().stream().anyMatch(predicate) || annotated(type, predicate);
+    }
+
+    private boolean annotated(TypeMirror type, Predicate<AnnotationMirror> predicate) {
+        if (type.getAnnotationMirrors().stream().anyMatch(predicate)) {
+            return true;
+        }
+        if (type instanceof DeclaredType declaredType) {
+            return declaredType.getTypeArguments().stream().anyMatch(typeArgument -> annotated(typeArgument, predicate));
+        }
+        if (type instanceof ArrayType arrayType) {
+            return annotated(arrayType.getComponentType(), predicate);
+        }
+        if (type instanceof WildcardType wildcardType) {
+            return (wildcardType.getExtendsBound() != null && annotated(wildcardType.getExtendsBound(), predicate))
+                    || (wildcardType.getSuperBound() != null && annotated(wildcardType.getSuperBound(), predicate));
+        }
+        return false;
+    }
+
+    /**
+     * @return 是否是敏感注解或者{@code @Cascade}注解
+     */
+    private boolean sensitive(AnnotationMirror annotation) {
+        TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+        return annotationType.getQualifiedName().contentEquals(CASCADE) || hasAnnotation(annotationType.getAnnotationMirrors(), PARSE);
+    }
+
+    private static boolean hasAnnotation(List<? extends AnnotationMirror> annotations, String annotationType) {
+        return annotations.stream().anyMatch(annotation -> ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationType));
+    }
+
+    /**
+     * 通过{@code META-INF/services}声明所有生成的类型解析器。增量编译时只有部分源码会被重新编译，
+     * 所以会保留之前的编译已经声明过并且仍然存在的类型解析器，而不是只声明本次编译生成的类型解析器。
+     */
+    private void writeServiceFile() {
+        if (generated.isEmpty()) {
+            return;
+        }
+        Set<String> names = new TreeSet<>(generated);
+        names.addAll(declaredTypeParsers());
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            try (Writer writer = file.openWriter()) {
+                for (String name : names) {
+                    writer.write(name);
+                    writer.write(System.lineSeparator());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return 之前的编译已经在{@code META-INF/services}中声明过，并且仍然存在的类型解析器
+     */
+    private Set<String> declaredTypeParsers() {
+        Set<String> names = new TreeSet<>();
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            try (BufferedReader reader = new BufferedReader(file.openReader(true))) {
+                reader.lines()
+                        .map(line -> line.replaceFirst("#.*", "").strip())
+                        .filter(name -> !name.isEmpty() && processingEnv.getElementUtils().getTypeElement(name) != null)
+                        .forEach(names::add);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // 之前没有声明过任何类型解析器
+        }
+        return names;
+    }
+
+    /**
+     * 目标类的一个属性
+     *
+     * @param declaringType    声明该属性的类
+     * @param name             属性名称，即字段名称
+     * @param direct           是否直接读写字段
+     * @param getter           读取该属性的表达式，不包括对象本身
+     * @param setter           写入该属性的字段名称或者setter方法名称，记录类为{@code null}
+     * @param needDesensitized 该属性是否需要被脱敏
+     * @param cascade          该属性是否需要被级联脱敏
+     */
+    record Property(TypeElement declaringType, String name, boolean direct, String getter, String setter, boolean needDesensitized, boolean cascade) {
+    }
+}
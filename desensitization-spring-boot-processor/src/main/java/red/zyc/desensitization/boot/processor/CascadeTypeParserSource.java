@@ -0,0 +1,165 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.processor;
+
+import red.zyc.desensitization.boot.processor.CascadeTypeParserProcessor.Property;
+
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 生成的类型解析器的源码
+ *
+ * @author zyc
+ */
+class CascadeTypeParserSource {
+
+    private final String packageName;
+
+    private final String simpleName;
+
+    private final TypeElement target;
+
+    private final List<Property> properties;
+
+    /**
+     * 需要被脱敏的属性与其{@code AnnotatedType}常量名称的映射
+     */
+    private final Map<Property, String> constants = new HashMap<>();
+
+    CascadeTypeParserSource(String packageName, String simpleName, TypeElement target, List<Property> properties) {
+        this.packageName = packageName;
+        this.simpleName = simpleName;
+        this.target = target;
+        this.properties = properties;
+    }
+
+    /**
+     * @return 类型解析器的源码
+     */
+    String render() {
+        String targetName = target.getQualifiedName().toString();
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import java.lang.reflect.AnnotatedType;\n")
+                .append("import javax.annotation.processing.Generated;\n")
+                .append("import red.zyc.parser.AnnotationParser;\n\n")
+                .append("@Generated(\"").append(CascadeTypeParserProcessor.class.getName()).append("\")\n")
+                .append("public final class ").append(simpleName).append(" extends ")
+                .append(CascadeTypeParserProcessor.GENERATED_CASCADE_TYPE_PARSER).append('<').append(targetName).append("> {\n\n");
+        for (Property property : properties) {
+            if (property.needDesensitized()) {
+                String constant = constant(property);
+                source.append("    private static final AnnotatedType ").append(constant).append(" = annotatedType(")
+                        .append(property.declaringType().getQualifiedName()).append(".class, \"").append(property.name()).append("\");\n\n");
+            }
+        }
+        source.append("    public ").append(simpleName).append("() {\n")
+                .append("        super(").append(targetName).append(".class);\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    protected ").append(targetName).append(" desensitize(").append(targetName).append(" value) {\n");
+        if (target.getKind() == ElementKind.RECORD) {
+            source.append("        return new ").append(targetName).append('(');
+            for (int i = 0; i < properties.size(); i++) {
+                source.append(i == 0 ? "\n" : ",\n").append("                ").append(read(properties.get(i)));
+            }
+            source.append(");\n");
+        } else {
+            source.append("        ").append(targetName).append(" desensitized = new ").append(targetName).append("();\n");
+            for (Property property : properties) {
+                source.append("        desensitized.").append(property.setter())
+                        .append(property.direct() ? " = " + read(property) + ";\n" : "(" + read(property) + ");\n");
+            }
+            source.append("        return desensitized;\n");
+        }
+        source.append("    }\n");
+        if (batchable()) {
+            renderBatch(source, targetName);
+        }
+        return source.append("}\n").toString();
+    }
+
+    /**
+     * 没有任何属性需要继续级联脱敏的类可以按列批量脱敏，此时对象之间不会通过级联脱敏互相影响，结果与逐个脱敏一致
+     */
+    private boolean batchable() {
+        return target.getKind() == ElementKind.CLASS && properties.stream().noneMatch(Property::cascade);
+    }
+
+    /**
+     * 生成先构造所有新对象，然后逐个属性地处理所有对象的批量脱敏方法，每个需要被脱敏的属性只会解析一次类型解析器
+     */
+    private void renderBatch(StringBuilder source, String targetName) {
+        String listType = "java.util.List<" + targetName + ">";
+        source.append("\n")
+                .append("    @Override\n")
+                .append("    protected boolean batchable() {\n")
+                .append("        return true;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    protected ").append(listType).append(" desensitizeAll(").append(listType).append(" values) {\n")
+                .append("        int size = values.size();\n")
+                .append("        ").append(listType).append(" desensitized = new java.util.ArrayList<>(size);\n")
+                .append("        for (int i = 0; i < size; i++) {\n")
+                .append("            desensitized.add(new ").append(targetName).append("());\n")
+                .append("        }\n");
+        if (properties.stream().anyMatch(Property::needDesensitized)) {
+            source.append("        FieldParser parser;\n");
+        }
+        for (Property property : properties) {
+            String value = "values.get(i)." + property.getter();
+            String read = value;
+            if (property.needDesensitized()) {
+                source.append("        parser = fieldParser(").append(constants.get(property)).append(");\n");
+                read = "parser.parse(" + value + ")";
+            }
+            source.append("        for (int i = 0; i < size; i++) {\n")
+                    .append("            desensitized.get(i).").append(property.setter())
+                    .append(property.direct() ? " = " + read + ";\n" : "(" + read + ");\n")
+                    .append("        }\n");
+        }
+        source.append("        return desensitized;\n")
+                .append("    }\n");
+    }
+
+    /**
+     * @return 读取属性的表达式，需要被脱敏的属性会交给{@code AnnotationParser}处理
+     */
+    private String read(Property property) {
+        String value = "value." + property.getter();
+        return property.needDesensitized() ? "AnnotationParser.parse(" + value + ", " + constants.get(property) + ")" : value;
+    }
+
+    /**
+     * 将属性名称转换成常量名称，例如{@code phoneNumber}转换成{@code PHONE_NUMBER}
+     */
+    private String constant(Property property) {
+        String constant = property.name().replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT);
+        while (constants.containsValue(constant)) {
+            constant = constant + "_";
+        }
+        constants.put(property, constant);
+        return constant;
+    }
+}
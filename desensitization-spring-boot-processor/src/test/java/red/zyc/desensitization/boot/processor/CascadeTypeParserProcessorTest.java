@@ -0,0 +1,257 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package red.zyc.desensitization.boot.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import red.zyc.desensitization.annotation.Email;
+import red.zyc.desensitization.boot.autoconfigure.GeneratedCascadeTypeParser;
+import red.zyc.parser.AnnotationParser;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author zyc
+ */
+class CascadeTypeParserProcessorTest {
+
+    private static final String SERVICE_FILE = "META-INF/services/" + CascadeTypeParserProcessor.GENERATED_CASCADE_TYPE_PARSER;
+
+    private static final String PERSON = """
+            package sample;
+
+            import red.zyc.desensitization.annotation.Email;
+            import red.zyc.parser.type.Cascade;
+
+            public class Person {
+
+                private @Email String email;
+
+                private int age;
+
+                private @Cascade Account account;
+
+                public String getEmail() {
+                    return email;
+                }
+
+                public void setEmail(String email) {
+                    this.email = email;
+                }
+
+                public int getAge() {
+                    return age;
+                }
+
+                public void setAge(int age) {
+                    this.age = age;
+                }
+
+                public Account getAccount() {
+                    return account;
+                }
+
+                public void setAccount(Account account) {
+                    this.account = account;
+                }
+
+                public static Person of(String email, int age, Account account) {
+                    Person person = new Person();
+                    person.email = email;
+                    person.age = age;
+                    person.account = account;
+                    return person;
+                }
+            }
+            """;
+
+    private static final String ACCOUNT = """
+            package sample;
+
+            import red.zyc.desensitization.annotation.Email;
+
+            public record Account(@Email String email, String name) {
+            }
+            """;
+
+    private static final String HOLDER = """
+            package sample;
+
+            import java.util.List;
+            import red.zyc.parser.type.Cascade;
+
+            public class Holder {
+
+                private List<@Cascade Person> people;
+
+                private @Cascade Box<String> box;
+
+                public static class Box<T> {
+                    public T value;
+                }
+            }
+            """;
+
+    private static final String ORDER = """
+            package other;
+
+            import red.zyc.parser.type.Cascade;
+
+            public class Order {
+
+                public @Cascade Item item;
+
+                public static class Item {
+                    public String name;
+                }
+            }
+            """;
+
+    @TempDir
+    Path output;
+
+    /**
+     * 为目标类生成可以编译的类型解析器，生成的代码与运行时的脱敏结果一致，带有泛型参数的目标类会被跳过
+     */
+    @Test
+    void generatesTypeParser() throws Exception {
+        List<Diagnostic<? extends JavaFileObject>> diagnostics = compile(Map.of("sample.Person", PERSON, "sample.Account", ACCOUNT, "sample.Holder", HOLDER));
+        assertTrue(Files.exists(output.resolve("sample/PersonCascadeTypeParser.java")));
+        assertTrue(Files.exists(output.resolve("sample/AccountCascadeTypeParser.java")));
+        assertFalse(Files.exists(output.resolve("sample/Holder_BoxCascadeTypeParser.java")));
+        assertTrue(diagnostics.stream().anyMatch(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.NOTE
+                && diagnostic.getMessage(null).contains("sample.Holder.Box") && diagnostic.getMessage(null).contains("泛型参数")));
+        assertEquals(List.of("sample.AccountCascadeTypeParser", "sample.PersonCascadeTypeParser"), services());
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{output.toUri().toURL()}, getClass().getClassLoader())) {
+            Class<?> personType = classLoader.loadClass("sample.Person");
+            Class<?> accountType = classLoader.loadClass("sample.Account");
+            Object account = accountType.getConstructors()[0].newInstance("123456@qq.com", "zyc");
+            Object person = personType.getMethod("of", String.class, int.class, accountType).invoke(null, "654321@qq.com", 18, account);
+
+            Object desensitizedPerson = typeParser(classLoader, "sample.PersonCascadeTypeParser").parse(person, null);
+            assertNotSame(person, desensitizedPerson);
+            assertEquals(AnnotationParser.parse("654321@qq.com", personType.getDeclaredField("email").getAnnotatedType()),
+                    personType.getMethod("getEmail").invoke(desensitizedPerson));
+            assertEquals(18, personType.getMethod("getAge").invoke(desensitizedPerson));
+
+            Object desensitizedAccount = typeParser(classLoader, "sample.AccountCascadeTypeParser").parse(account, null);
+            assertNotSame(account, desensitizedAccount);
+            assertEquals(AnnotationParser.parse("123456@qq.com", accountType.getDeclaredField("email").getAnnotatedType()),
+                    accountType.getMethod("email").invoke(desensitizedAccount));
+            assertEquals("zyc", accountType.getMethod("name").invoke(desensitizedAccount));
+        }
+    }
+
+    /**
+     * 增量编译时保留之前声明过并且仍然存在的类型解析器，移除已经不存在的类型解析器
+     */
+    @Test
+    void mergesServiceFile() throws IOException {
+        compile(Map.of("sample.Person", PERSON, "sample.Account", ACCOUNT, "sample.Holder", HOLDER));
+        Files.writeString(output.resolve(SERVICE_FILE), "sample.RemovedCascadeTypeParser # 已经被删除\n", StandardOpenOption.APPEND);
+
+        compile(Map.of("other.Order", ORDER));
+        assertTrue(Files.exists(output.resolve("other/Order_ItemCascadeTypeParser.java")));
+        assertEquals(List.of("other.Order_ItemCascadeTypeParser", "sample.AccountCascadeTypeParser", "sample.PersonCascadeTypeParser"), services());
+    }
+
+    /**
+     * 编译源码，编译输出目录同时作为类路径，以便增量编译时能够找到之前编译的类
+     *
+     * @param sources 类的全限定名与源码的映射
+     * @return 编译过程中产生的诊断信息
+     */
+    private List<Diagnostic<? extends JavaFileObject>> compile(Map<String, String> sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            fileManager.setLocationFromPaths(StandardLocation.CLASS_OUTPUT, List.of(output));
+            fileManager.setLocationFromPaths(StandardLocation.SOURCE_OUTPUT, List.of(output));
+            List<Path> classPath = new ArrayList<>(classPath(GeneratedCascadeTypeParser.class, AnnotationParser.class, Email.class));
+            classPath.add(output);
+            fileManager.setLocationFromPaths(StandardLocation.CLASS_PATH, classPath);
+            List<JavaFileObject> compilationUnits = sources.entrySet().stream()
+                    .map(entry -> (JavaFileObject) new Source(entry.getKey(), entry.getValue()))
+                    .toList();
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, List.of("-proc:full"), null, compilationUnits);
+            task.setProcessors(List.of(new CascadeTypeParserProcessor()));
+            boolean success = task.call();
+            assertTrue(success, () -> diagnostics.getDiagnostics().stream().map(String::valueOf).collect(Collectors.joining(System.lineSeparator())));
+        }
+        return diagnostics.getDiagnostics();
+    }
+
+    private List<String> services() throws IOException {
+        return Files.readAllLines(output.resolve(SERVICE_FILE)).stream().filter(line -> !line.isBlank()).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static GeneratedCascadeTypeParser<Object> typeParser(ClassLoader classLoader, String name) throws ReflectiveOperationException {
+        return (GeneratedCascadeTypeParser<Object>) classLoader.loadClass(name).getConstructor().newInstance();
+    }
+
+    private static List<Path> classPath(Class<?>... types) {
+        return Arrays.stream(types).map(type -> {
+            try {
+                return Path.of(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+            } catch (URISyntaxException e) {
+                throw new IllegalStateException(e);
+            }
+        }).distinct().toList();
+    }
+
+    private static final class Source extends SimpleJavaFileObject {
+
+        private final String code;
+
+        Source(String name, String code) {
+            super(URI.create("string:///" + name.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+}